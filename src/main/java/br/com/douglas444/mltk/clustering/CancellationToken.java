@@ -0,0 +1,59 @@
+package br.com.douglas444.mltk.clustering;
+
+import java.util.concurrent.TimeUnit;
+
+/** Asks a clustering run to stop early, either when {@link #cancel()} is
+ * called from any thread or once a deadline passes. The algorithms check it
+ * between iterations, and MCIKMeans also between passes of its iterative
+ * conditional mode loop, so a run stops at most one iteration or pass after
+ * the token is cancelled.
+ */
+public class CancellationToken {
+
+    /** Token that is never cancelled, used when none is given. */
+    public static final CancellationToken NONE = new CancellationToken();
+
+    private final boolean timed;
+    private final long deadline;
+    private volatile boolean cancelled;
+
+    /** Creates a token without deadline, cancelled only by {@link #cancel()}.
+     */
+    public CancellationToken() {
+        this(false, 0);
+    }
+
+    private CancellationToken(final boolean timed, final long deadline) {
+        this.timed = timed;
+        this.deadline = deadline;
+        this.cancelled = false;
+    }
+
+    /** Creates a token that is cancelled once the timeout passed as argument
+     * elapses, counted from now.
+     */
+    public static CancellationToken withTimeout(final long timeout, final TimeUnit unit) {
+
+        if (timeout < 0) {
+            throw new IllegalArgumentException();
+        }
+
+        return new CancellationToken(true, System.nanoTime() + unit.toNanos(timeout));
+
+    }
+
+    public void cancel() {
+
+        if (this == NONE) {
+            throw new UnsupportedOperationException();
+        }
+
+        this.cancelled = true;
+
+    }
+
+    public boolean isCancelled() {
+        return this.cancelled || (this.timed && System.nanoTime() - this.deadline >= 0);
+    }
+
+}
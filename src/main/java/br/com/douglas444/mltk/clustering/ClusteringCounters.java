@@ -0,0 +1,132 @@
+package br.com.douglas444.mltk.clustering;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/** Listener that accumulates the events of one or more clustering runs into
+ * plain counters, to be exported as a map or a single log line. It is meant
+ * to be used by one run at a time.
+ */
+public class ClusteringCounters implements ClusteringListener {
+
+    private final long[] phaseNanos = new long[Phase.values().length];
+    private final List<Double> sseTrajectory = new ArrayList<>();
+    private int iterations;
+    private int icmPasses;
+    private long reassignments;
+    private long distanceComputations;
+
+    @Override
+    public void onPhaseCompleted(final Phase phase, final long nanos) {
+        this.phaseNanos[phase.ordinal()] += nanos;
+    }
+
+    @Override
+    public void onIteration(final int iteration, final double sse) {
+        ++this.iterations;
+        this.sseTrajectory.add(sse);
+    }
+
+    @Override
+    public void onIcmPass(final int pass, final int reassigned) {
+        ++this.icmPasses;
+        this.reassignments += reassigned;
+    }
+
+    @Override
+    public void onDistanceComputations(final long count) {
+        this.distanceComputations += count;
+    }
+
+    public void reset() {
+        Arrays.fill(this.phaseNanos, 0);
+        this.sseTrajectory.clear();
+        this.iterations = 0;
+        this.icmPasses = 0;
+        this.reassignments = 0;
+        this.distanceComputations = 0;
+    }
+
+    /** Returns the counters by name, in a stable order, with the times in
+     * nanoseconds.
+     */
+    public Map<String, Object> toMap() {
+
+        final Map<String, Object> map = new LinkedHashMap<>();
+
+        map.put("iterations", this.iterations);
+        map.put("icmPasses", this.icmPasses);
+        map.put("reassignments", this.reassignments);
+        map.put("distanceComputations", this.distanceComputations);
+        for (final Phase phase : Phase.values()) {
+            map.put(phase.name().toLowerCase(Locale.ROOT) + "Nanos", this.phaseNanos[phase.ordinal()]);
+        }
+        map.put("finalSse", this.getFinalSse());
+        map.put("sseTrajectory", new ArrayList<>(this.sseTrajectory));
+
+        return map;
+
+    }
+
+    /** Returns the counters as space-separated name=value pairs, leaving out
+     * the SSE trajectory.
+     */
+    public String toLogLine() {
+
+        final StringBuilder line = new StringBuilder();
+
+        this.toMap().forEach((name, value) -> {
+            if (!name.equals("sseTrajectory")) {
+                if (line.length() > 0) {
+                    line.append(' ');
+                }
+                line.append(name).append('=').append(value);
+            }
+        });
+
+        return line.toString();
+
+    }
+
+    public long getPhaseNanos(final Phase phase) {
+        return this.phaseNanos[phase.ordinal()];
+    }
+
+    public List<Double> getSseTrajectory() {
+        return Collections.unmodifiableList(sseTrajectory);
+    }
+
+    /** Returns the SSE of the last iteration, or NaN if no iteration was
+     * reported.
+     */
+    public double getFinalSse() {
+        return this.sseTrajectory.isEmpty() ? Double.NaN : this.sseTrajectory.get(this.sseTrajectory.size() - 1);
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    public int getIcmPasses() {
+        return icmPasses;
+    }
+
+    public long getReassignments() {
+        return reassignments;
+    }
+
+    public long getDistanceComputations() {
+        return distanceComputations;
+    }
+
+    @Override
+    public String toString() {
+        return this.toLogLine();
+    }
+
+}
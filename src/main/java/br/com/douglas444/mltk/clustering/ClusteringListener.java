@@ -0,0 +1,44 @@
+package br.com.douglas444.mltk.clustering;
+
+/** Receives progress events from a clustering run. Every method does nothing
+ * by default, so an implementation only overrides what it needs. The
+ * algorithms test for {@link #NONE}, the listener used when none is given,
+ * and then skip timing and the extra work some events require, such as the
+ * sum of squared errors, so an uninstrumented run costs nothing more than
+ * before. Events are delivered in the calling thread, at most a few per
+ * iteration.
+ */
+public interface ClusteringListener {
+
+    ClusteringListener NONE = new ClusteringListener() { };
+
+    enum Phase {
+        SEEDING,
+        ASSIGNMENT,
+        UPDATE
+    }
+
+    default void onPhaseCompleted(final Phase phase, final long nanos) {
+    }
+
+    /** Called after the update step of each iteration, numbered from 1.
+     *
+     * @param sse Sum of the squared distances of the samples to the updated
+     * centroids of their clusters.
+     */
+    default void onIteration(final int iteration, final double sse) {
+    }
+
+    /** Called after each pass of an iterative conditional mode loop over the
+     * samples, numbered from 1 within each iteration.
+     *
+     * @param reassigned Number of samples that changed cluster in the pass.
+     */
+    default void onIcmPass(final int pass, final int reassigned) {
+    }
+
+    /** Reports distance computations, in batches, partial ones included. */
+    default void onDistanceComputations(final long count) {
+    }
+
+}
@@ -0,0 +1,466 @@
+package br.com.douglas444.mltk.clustering;
+
+import br.com.douglas444.mltk.datastructure.ClusterFeature;
+import br.com.douglas444.mltk.datastructure.PairwiseDistances;
+import br.com.douglas444.mltk.datastructure.Partition;
+import br.com.douglas444.mltk.datastructure.SampleMatrix;
+import br.com.douglas444.mltk.datastructure.SparseClusterFeature;
+import br.com.douglas444.mltk.datastructure.SparseSampleMatrix;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+/** Quality indices of a clustering computed from the sufficient statistics of
+ * its clusters, the linear sum, the trace of the squared sums and the number
+ * of samples, without any pass over the samples themselves. The sum of
+ * squared errors of a cluster is tr(SS) − ‖LS‖² / n, the centroids are
+ * LS / n and the mean of the whole data set is ΣLS / Σn, so the SSE, the
+ * radii and the densities cost O(k·d), and the Davies–Bouldin and
+ * Calinski–Harabasz indices O(k²·d) and O(k·d).
+ *
+ * The statistics are copied when the instance is created, so later updates to
+ * the cluster features are not observed.
+ */
+public class ClusteringQuality {
+
+    private final int k;
+    private final int dimensions;
+    private final double[] centroids;
+    private final double[] sse;
+    private final int[] sizes;
+
+    private ClusteringQuality(final int k, final int dimensions) {
+
+        if (k < 1) {
+            throw new IllegalArgumentException();
+        }
+
+        this.k = k;
+        this.dimensions = dimensions;
+        this.centroids = new double[k * dimensions];
+        this.sse = new double[k];
+        this.sizes = new int[k];
+
+    }
+
+    public static ClusteringQuality of(final List<ClusterFeature> clusterFeatures) {
+
+        if (clusterFeatures.isEmpty()) {
+            throw new IllegalArgumentException();
+        }
+
+        final ClusteringQuality quality = new ClusteringQuality(clusterFeatures.size(),
+                clusterFeatures.get(0).getLs().length);
+
+        for (int j = 0; j < quality.k; ++j) {
+
+            final ClusterFeature clusterFeature = clusterFeatures.get(j);
+            final double[][] ss = clusterFeature.getSs();
+
+            double trace = 0;
+            for (int l = 0; l < ss.length; ++l) {
+                trace += ss[l][l];
+            }
+
+            quality.set(j, clusterFeature.getLs(), trace, clusterFeature.getN());
+
+        }
+
+        return quality;
+
+    }
+
+    public static ClusteringQuality ofSparse(final List<SparseClusterFeature> clusterFeatures) {
+
+        if (clusterFeatures.isEmpty()) {
+            throw new IllegalArgumentException();
+        }
+
+        final ClusteringQuality quality = new ClusteringQuality(clusterFeatures.size(),
+                clusterFeatures.get(0).getLs().length);
+
+        for (int j = 0; j < quality.k; ++j) {
+            final SparseClusterFeature clusterFeature = clusterFeatures.get(j);
+            quality.set(j, clusterFeature.getLs(), clusterFeature.getSs(), clusterFeature.getN());
+        }
+
+        return quality;
+
+    }
+
+    /** Computes the linear sums and the traces of the clusters of the
+     * partition passed as argument in one pass over the rows of the matrix,
+     * O(n·d), or proportional to the non-zero values for a
+     * {@link SparseSampleMatrix}. The centroids are recomputed as the means of
+     * the rows, whatever the centroids stored in the partition. Empty
+     * clusters are left out, as {@link Partition#toClusterFeatures} does, so
+     * the clusters are numbered in order among the non-empty ones.
+     */
+    public static ClusteringQuality of(final Partition partition, final SampleMatrix samples) {
+
+        final int[] assignments = partition.getAssignments();
+        final int[] sizes = partition.getSizes();
+
+        if (samples.size() != assignments.length) {
+            throw new IllegalArgumentException();
+        }
+
+        int nonEmpty = 0;
+        for (final int size : sizes) {
+            if (size > 0) {
+                ++nonEmpty;
+            }
+        }
+
+        final int dimensions = samples.getDimensions();
+        final ClusteringQuality quality = new ClusteringQuality(nonEmpty, dimensions);
+        final double[] ls = new double[sizes.length * dimensions];
+        final double[] traces = new double[sizes.length];
+        final double[] x = new double[dimensions];
+
+        final SparseSampleMatrix sparse = samples instanceof SparseSampleMatrix
+                ? (SparseSampleMatrix) samples
+                : null;
+
+        for (int i = 0; i < assignments.length; ++i) {
+
+            final int offset = assignments[i] * dimensions;
+
+            if (sparse != null) {
+                sparse.addTo(i, ls, offset, 1);
+                traces[assignments[i]] += sparse.getSquaredNorm(i);
+            } else {
+                samples.copyRow(i, x, 0);
+                for (int l = 0; l < dimensions; ++l) {
+                    ls[offset + l] += x[l];
+                    traces[assignments[i]] += x[l] * x[l];
+                }
+            }
+
+        }
+
+        final double[] clusterLs = new double[dimensions];
+        for (int j = 0, cluster = 0; j < sizes.length; ++j) {
+            if (sizes[j] > 0) {
+                System.arraycopy(ls, j * dimensions, clusterLs, 0, dimensions);
+                quality.set(cluster++, clusterLs, traces[j], sizes[j]);
+            }
+        }
+
+        return quality;
+
+    }
+
+    private void set(final int cluster, final double[] ls, final double trace, final int n) {
+
+        if (n < 1 || ls.length != this.dimensions) {
+            throw new IllegalArgumentException();
+        }
+
+        double squaredNorm = 0;
+        for (int l = 0; l < this.dimensions; ++l) {
+            squaredNorm += ls[l] * ls[l];
+            this.centroids[cluster * this.dimensions + l] = ls[l] / n;
+        }
+
+        this.sse[cluster] = Math.max(0, trace - squaredNorm / n);
+        this.sizes[cluster] = n;
+
+    }
+
+    /** Returns the sum of the squared distances of the samples to the
+     * centroids of their clusters.
+     */
+    public double calculateSse() {
+
+        double sum = 0;
+        for (int j = 0; j < this.k; ++j) {
+            sum += this.sse[j];
+        }
+        return sum;
+
+    }
+
+    public double calculateSse(final int cluster) {
+        return this.sse[cluster];
+    }
+
+    /** Returns the root mean square distance of the samples of a cluster to
+     * its centroid, the same value as its standard deviation.
+     */
+    public double calculateRadius(final int cluster) {
+        return Math.sqrt(this.sse[cluster] / this.sizes[cluster]);
+    }
+
+    /** Returns the natural logarithm of the number of samples of a cluster
+     * divided by its radius raised to the dimensions, the density up to the
+     * constant volume factor of a d-ball. The logarithm keeps the value finite
+     * in high dimensions; it is only meant to compare clusters of the same
+     * data set. A cluster of identical samples has an infinite density.
+     */
+    public double calculateLogDensity(final int cluster) {
+        return Math.log(this.sizes[cluster]) - this.dimensions * Math.log(this.calculateRadius(cluster));
+    }
+
+    /** Returns the Davies–Bouldin index, the mean over the clusters of the
+     * largest ratio (Sᵢ + Sⱼ) / ‖cᵢ − cⱼ‖, with the radius as the scatter Sᵢ.
+     * Lower is better. Two clusters sharing their centroid make it infinite.
+     */
+    public double calculateDaviesBouldin() {
+
+        if (this.k < 2) {
+            throw new IllegalStateException();
+        }
+
+        final double[] radii = new double[this.k];
+        for (int j = 0; j < this.k; ++j) {
+            radii[j] = this.calculateRadius(j);
+        }
+
+        double sum = 0;
+
+        for (int i = 0; i < this.k; ++i) {
+
+            double maximum = 0;
+
+            for (int j = 0; j < this.k; ++j) {
+                if (j != i) {
+                    final double separation = Math.sqrt(squaredDistance(this.centroids, i * this.dimensions,
+                            this.centroids, j * this.dimensions, this.dimensions));
+                    maximum = Math.max(maximum, (radii[i] + radii[j]) / separation);
+                }
+            }
+
+            sum += maximum;
+
+        }
+
+        return sum / this.k;
+
+    }
+
+    /** Returns the Calinski–Harabasz index, the between-cluster dispersion
+     * Σnⱼ‖cⱼ − c‖² over k − 1 divided by the within-cluster dispersion, the
+     * SSE, over n − k. Higher is better.
+     */
+    public double calculateCalinskiHarabasz() {
+
+        long n = 0;
+        final double[] mean = new double[this.dimensions];
+
+        for (int j = 0; j < this.k; ++j) {
+            n += this.sizes[j];
+            for (int l = 0; l < this.dimensions; ++l) {
+                mean[l] += this.centroids[j * this.dimensions + l] * this.sizes[j];
+            }
+        }
+
+        if (this.k < 2 || n <= this.k) {
+            throw new IllegalStateException();
+        }
+
+        for (int l = 0; l < this.dimensions; ++l) {
+            mean[l] /= n;
+        }
+
+        double between = 0;
+        for (int j = 0; j < this.k; ++j) {
+            between += this.sizes[j] * squaredDistance(this.centroids, j * this.dimensions, mean, 0, this.dimensions);
+        }
+
+        return (between / (this.k - 1)) / (this.calculateSse() / (n - this.k));
+
+    }
+
+    /** Returns the Bayesian information criterion of the clustering seen as a
+     * mixture of spherical Gaussians with a shared variance, as in X-means:
+     * the log-likelihood Σnⱼ ln(nⱼ / n) − n·d / 2 · ln(2πσ²) − d(n − k) / 2,
+     * with σ² = SSE / (d(n − k)), minus half the k·d + k parameters times
+     * ln n. Higher is better.
+     */
+    public double calculateBic() {
+
+        long n = 0;
+        for (int j = 0; j < this.k; ++j) {
+            n += this.sizes[j];
+        }
+
+        if (n <= this.k) {
+            throw new IllegalStateException();
+        }
+
+        final double variance = this.calculateSse() / ((double) this.dimensions * (n - this.k));
+
+        double logLikelihood = -n * this.dimensions / 2.0 * Math.log(2 * Math.PI * variance)
+                - this.dimensions * (n - this.k) / 2.0;
+        for (int j = 0; j < this.k; ++j) {
+            logLikelihood += this.sizes[j] * Math.log(this.sizes[j] / (double) n);
+        }
+
+        final int parameters = this.k * this.dimensions + this.k;
+
+        return logLikelihood - parameters / 2.0 * Math.log(n);
+
+    }
+
+    /** Returns the simplified silhouette of the rows of the matrix passed as
+     * argument, each one assigned to its closest centroid: the mean of
+     * 1 − a / b, where a and b are the distances to the closest and the
+     * second closest centroids. Unlike the silhouette it needs no pairwise
+     * distances, only O(k·d) per row. If the sample size is smaller than the
+     * number of rows, that many rows are drawn uniformly at random, with
+     * replacement, giving an estimate; otherwise every row is used. Rows of a
+     * {@link SparseSampleMatrix} are read through their non-zero values only.
+     *
+     * @return Returns a value between 0, every row halfway between two
+     * centroids, and 1, every row on its centroid.
+     */
+    public double calculateSimplifiedSilhouette(final SampleMatrix samples, final int sampleSize,
+                                                final Random random) {
+
+        if (this.k < 2 || sampleSize < 1 || samples.size() == 0 || samples.getDimensions() != this.dimensions) {
+            throw new IllegalArgumentException();
+        }
+
+        final SparseSampleMatrix sparse = samples instanceof SparseSampleMatrix
+                ? (SparseSampleMatrix) samples
+                : null;
+
+        final double[] centroidSquaredNorms = new double[this.k];
+        for (int j = 0; j < this.k; ++j) {
+            for (int l = j * this.dimensions; l < (j + 1) * this.dimensions; ++l) {
+                centroidSquaredNorms[j] += this.centroids[l] * this.centroids[l];
+            }
+        }
+
+        final boolean sampled = sampleSize < samples.size();
+        final int count = sampled ? sampleSize : samples.size();
+        final double[] x = new double[this.dimensions];
+        double sum = 0;
+
+        for (int s = 0; s < count; ++s) {
+
+            final int row = sampled ? random.nextInt(samples.size()) : s;
+
+            if (sparse == null) {
+                samples.copyRow(row, x, 0);
+            }
+
+            double closest = Double.POSITIVE_INFINITY;
+            double second = Double.POSITIVE_INFINITY;
+
+            for (int j = 0; j < this.k; ++j) {
+
+                final double distance;
+                if (sparse != null) {
+                    distance = Math.max(0, sparse.getSquaredNorm(row) + centroidSquaredNorms[j]
+                            - 2 * sparse.dot(row, this.centroids, j * this.dimensions));
+                } else {
+                    distance = squaredDistance(x, 0, this.centroids, j * this.dimensions, this.dimensions);
+                }
+
+                if (distance < closest) {
+                    second = closest;
+                    closest = distance;
+                } else if (distance < second) {
+                    second = distance;
+                }
+
+            }
+
+            sum += second == 0 ? 0 : 1 - Math.sqrt(closest) / Math.sqrt(second);
+
+        }
+
+        return sum / count;
+
+    }
+
+    /** Returns the silhouette of a clustering of the samples whose distances
+     * are passed as argument, the cluster of each sample given by the
+     * assignments: the mean over the samples of (b − a) / max(a, b), where a
+     * is the mean distance to the other samples of its cluster and b the
+     * lowest mean distance to the samples of another cluster, 0 for samples
+     * alone in their cluster. It reads every pairwise distance, n² lookups,
+     * spread over the samples in parallel, so it is meant for distances
+     * computed once and shared, such as a
+     * {@link br.com.douglas444.mltk.datastructure.TriangularDistanceMatrix}.
+     *
+     * @return Returns a value between -1 and 1, higher for compact and well
+     * separated clusters.
+     */
+    public static double calculateSilhouette(final PairwiseDistances distances, final int[] assignments) {
+
+        final int n = distances.size();
+
+        if (assignments.length != n || n == 0) {
+            throw new IllegalArgumentException();
+        }
+
+        final int k = Arrays.stream(assignments).max().orElse(0) + 1;
+        final int[] sizes = new int[k];
+        for (final int assignment : assignments) {
+            ++sizes[assignment];
+        }
+
+        if (Arrays.stream(sizes).filter(size -> size > 0).count() < 2) {
+            throw new IllegalArgumentException("The silhouette needs at least two clusters");
+        }
+
+        return IntStream.range(0, n).parallel().mapToDouble(i -> {
+
+            final int own = assignments[i];
+
+            if (sizes[own] == 1) {
+                return 0;
+            }
+
+            final double[] sums = new double[k];
+            for (int o = 0; o < n; ++o) {
+                sums[assignments[o]] += distances.distance(i, o);
+            }
+
+            final double a = sums[own] / (sizes[own] - 1);
+            double b = Double.POSITIVE_INFINITY;
+
+            for (int j = 0; j < k; ++j) {
+                if (j != own && sizes[j] > 0) {
+                    b = Math.min(b, sums[j] / sizes[j]);
+                }
+            }
+
+            return Math.max(a, b) == 0 ? 0 : (b - a) / Math.max(a, b);
+
+        }).sum() / n;
+
+    }
+
+    /** Returns the number of clusters. */
+    public int size() {
+        return this.k;
+    }
+
+    public int getSize(final int cluster) {
+        return this.sizes[cluster];
+    }
+
+    /** Returns the centroid of a cluster, the mean of its samples. */
+    public double[] getCentroid(final int cluster) {
+        return Arrays.copyOfRange(this.centroids, cluster * this.dimensions, (cluster + 1) * this.dimensions);
+    }
+
+    private static double squaredDistance(final double[] a, final int aOffset, final double[] b, final int bOffset,
+                                          final int dimensions) {
+
+        double sum = 0;
+        for (int l = 0; l < dimensions; ++l) {
+            final double difference = a[aOffset + l] - b[bOffset + l];
+            sum += difference * difference;
+        }
+        return sum;
+
+    }
+
+}
@@ -0,0 +1,35 @@
+package br.com.douglas444.mltk.clustering;
+
+/** Solution returned by a clustering run that may have been stopped by a
+ * {@link CancellationToken}, together with whether it converged.
+ *
+ * @param <T> Type of the solution, such as a list of clusters or a partition.
+ */
+public class ClusteringResult<T> {
+
+    private final T solution;
+    private final boolean converged;
+    private final int iterations;
+
+    public ClusteringResult(final T solution, final boolean converged, final int iterations) {
+        this.solution = solution;
+        this.converged = converged;
+        this.iterations = iterations;
+    }
+
+    public T getSolution() {
+        return solution;
+    }
+
+    /** Returns true if the run stopped because its assignments stopped
+     * changing, and false if it was cancelled first.
+     */
+    public boolean isConverged() {
+        return converged;
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+}
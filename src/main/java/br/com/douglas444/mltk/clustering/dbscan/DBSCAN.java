@@ -0,0 +1,172 @@
+package br.com.douglas444.mltk.clustering.dbscan;
+
+import br.com.douglas444.mltk.datastructure.PairwiseDistances;
+import br.com.douglas444.mltk.datastructure.Sample;
+import br.com.douglas444.mltk.datastructure.SampleMatrix;
+
+import java.util.Arrays;
+import java.util.List;
+
+/** DBSCAN (Ester et al., 1996): a sample with at least minPoints samples
+ * within ε of it, itself included, is a core sample; core samples within ε of
+ * each other share a cluster, together with every sample within ε of one of
+ * them, and the samples reached from no core sample are noise. The number of
+ * clusters is not given, and clusters may have any shape.
+ *
+ * Every ε-range query is answered by a {@link KDTree} built over a copy of
+ * the samples, and each sample is queried exactly once, so for a fixed
+ * dimensionality and neighborhoods of bounded size a run costs about
+ * O(n·log n) instead of the O(n²) of a linear scan per query. As with any
+ * space-partitioning index, the pruning weakens as the number of dimensions
+ * grows, down to a scan of every leaf.
+ *
+ * {@link #execute(PairwiseDistances, double, int)} instead answers each query
+ * by a scan over distances computed beforehand, such as a
+ * {@link br.com.douglas444.mltk.datastructure.TriangularDistanceMatrix}.
+ */
+public final class DBSCAN {
+
+    private static final int UNVISITED = -2;
+
+    public static DBSCANResult execute(final SampleMatrix samples, final double epsilon, final int minPoints) {
+
+        final int n = samples.size();
+        final int dimensions = samples.getDimensions();
+        final double[] points = new double[n * dimensions];
+
+        for (int i = 0; i < n; ++i) {
+            samples.copyRow(i, points, i * dimensions);
+        }
+
+        return execute(points, dimensions, epsilon, minPoints);
+
+    }
+
+    public static DBSCANResult execute(final List<Sample> samples, final double epsilon, final int minPoints) {
+
+        if (samples.isEmpty()) {
+            return execute(new double[0], 1, epsilon, minPoints);
+        }
+
+        final int dimensions = samples.get(0).getX().length;
+        final double[] points = new double[samples.size() * dimensions];
+
+        for (int i = 0; i < samples.size(); ++i) {
+            System.arraycopy(samples.get(i).getX(), 0, points, i * dimensions, dimensions);
+        }
+
+        return execute(points, dimensions, epsilon, minPoints);
+
+    }
+
+    /** Clusters the samples whose distances are passed as argument, answering
+     * each ε-range query with a scan over the distances of a sample, n
+     * lookups in all. Each sample is queried once, so every distance is read
+     * at most twice.
+     */
+    public static DBSCANResult execute(final PairwiseDistances distances, final double epsilon,
+                                       final int minPoints) {
+
+        return execute(distances.size(), (row, neighborhood) -> {
+            neighborhood.clear();
+            for (int o = 0; o < distances.size(); ++o) {
+                if (distances.distance(row, o) <= epsilon) {
+                    neighborhood.add(o);
+                }
+            }
+        }, epsilon, minPoints);
+
+    }
+
+    private static DBSCANResult execute(final double[] points, final int dimensions, final double epsilon,
+                                        final int minPoints) {
+
+        final KDTree tree = new KDTree(points, dimensions);
+        return execute(points.length / dimensions,
+                (row, neighborhood) -> tree.rangeQuery(row, epsilon, neighborhood), epsilon, minPoints);
+
+    }
+
+    private static DBSCANResult execute(final int n, final RangeQuery rangeQuery, final double epsilon,
+                                        final int minPoints) {
+
+        if (epsilon < 0 || minPoints < 1) {
+            throw new IllegalArgumentException();
+        }
+
+        final KDTree.Neighborhood neighborhood = new KDTree.Neighborhood();
+        final int[] labels = new int[n];
+        final boolean[] core = new boolean[n];
+        int[] queue = new int[64];
+        int clusters = 0;
+
+        Arrays.fill(labels, UNVISITED);
+
+        for (int p = 0; p < n; ++p) {
+
+            if (labels[p] != UNVISITED) {
+                continue;
+            }
+
+            rangeQuery.query(p, neighborhood);
+
+            if (neighborhood.size() < minPoints) {
+                labels[p] = DBSCANResult.NOISE;
+                continue;
+            }
+
+            final int cluster = clusters++;
+            int head = 0;
+            int tail = 0;
+
+            labels[p] = cluster;
+            queue[tail++] = p;
+
+            while (head < tail) {
+
+                final int q = queue[head++];
+
+                if (q != p) {
+                    rangeQuery.query(q, neighborhood);
+                }
+
+                if (neighborhood.size() < minPoints) {
+                    continue;
+                }
+
+                core[q] = true;
+
+                for (int i = 0; i < neighborhood.size(); ++i) {
+
+                    final int o = neighborhood.get(i);
+
+                    if (labels[o] == DBSCANResult.NOISE) {
+                        labels[o] = cluster;
+                    } else if (labels[o] == UNVISITED) {
+                        labels[o] = cluster;
+                        if (tail == queue.length) {
+                            queue = Arrays.copyOf(queue, tail * 2);
+                        }
+                        queue[tail++] = o;
+                    }
+
+                }
+
+            }
+
+        }
+
+        return new DBSCANResult(labels, core, clusters);
+
+    }
+
+    private interface RangeQuery {
+
+        /** Collects every sample within ε of the row passed as argument into
+         * the neighborhood, after clearing it.
+         */
+        void query(int row, KDTree.Neighborhood neighborhood);
+
+    }
+
+}
@@ -0,0 +1,232 @@
+package br.com.douglas444.mltk.clustering.dbscan;
+
+import br.com.douglas444.mltk.datastructure.Cluster;
+import br.com.douglas444.mltk.datastructure.ClusterFeature;
+import br.com.douglas444.mltk.datastructure.Partition;
+import br.com.douglas444.mltk.datastructure.RowSubsetMatrix;
+import br.com.douglas444.mltk.datastructure.Sample;
+import br.com.douglas444.mltk.datastructure.SampleMatrix;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** Outcome of a {@link DBSCAN} run: the cluster of each sample, or
+ * {@link #NOISE}, and whether it is a core sample. Clusters are numbered from
+ * 0 in the order they were found, and the noise is left out of every
+ * conversion to {@link Cluster} or {@link ClusterFeature}.
+ */
+public class DBSCANResult {
+
+    public static final int NOISE = -1;
+
+    private final int[] labels;
+    private final boolean[] core;
+    private final int clusterCount;
+
+    DBSCANResult(final int[] labels, final boolean[] core, final int clusterCount) {
+        this.labels = labels;
+        this.core = core;
+        this.clusterCount = clusterCount;
+    }
+
+    public List<Cluster> toClusters(final List<Sample> samples) {
+
+        if (samples.size() != this.labels.length) {
+            throw new IllegalArgumentException();
+        }
+
+        final List<List<Sample>> members = new ArrayList<>();
+        for (int j = 0; j < this.clusterCount; ++j) {
+            members.add(new ArrayList<>());
+        }
+
+        for (int i = 0; i < this.labels.length; ++i) {
+            if (this.labels[i] != NOISE) {
+                members.get(this.labels[i]).add(samples.get(i));
+            }
+        }
+
+        final List<Cluster> clusters = new ArrayList<>();
+        members.forEach(cluster -> clusters.add(new Cluster(cluster)));
+        return clusters;
+
+    }
+
+    public List<Cluster> toClusters(final SampleMatrix samples) {
+
+        if (samples.size() != this.labels.length) {
+            throw new IllegalArgumentException();
+        }
+
+        final List<List<Sample>> members = new ArrayList<>();
+        for (int j = 0; j < this.clusterCount; ++j) {
+            members.add(new ArrayList<>());
+        }
+
+        for (final int row : this.getClusteredRows()) {
+            members.get(this.labels[row]).add(samples.getSample(row));
+        }
+
+        final List<Cluster> clusters = new ArrayList<>();
+        members.forEach(cluster -> clusters.add(new Cluster(cluster)));
+        return clusters;
+
+    }
+
+    /** Summarizes each cluster as a {@link ClusterFeature}, labeled with the
+     * most frequent label of its samples, without materializing any sample.
+     */
+    public List<ClusterFeature> toClusterFeatures(final SampleMatrix samples) {
+
+        if (samples.size() != this.labels.length) {
+            throw new IllegalArgumentException();
+        }
+
+        final int[] rows = this.getClusteredRows();
+        return this.toClusterFeatures(new RowSubsetMatrix(samples, rows), rows);
+
+    }
+
+    public List<ClusterFeature> toClusterFeatures(final List<Sample> samples) {
+
+        if (samples.size() != this.labels.length) {
+            throw new IllegalArgumentException();
+        }
+
+        final int[] rows = this.getClusteredRows();
+        return this.toClusterFeatures(new ClusteredSamples(samples, rows), rows);
+
+    }
+
+    /** Builds a {@link Partition} over the clustered rows passed as argument,
+     * whose values are the rows of the matrix, and summarizes it.
+     */
+    private List<ClusterFeature> toClusterFeatures(final SampleMatrix clustered, final int[] rows) {
+
+        if (rows.length == 0) {
+            return new ArrayList<>();
+        }
+
+        final int[] assignments = new int[rows.length];
+        final int dimensions = clustered.getDimensions();
+        final double[][] sums = new double[this.clusterCount][dimensions];
+        final int[] sizes = new int[this.clusterCount];
+        final double[] x = new double[dimensions];
+
+        for (int i = 0; i < rows.length; ++i) {
+            final int j = this.labels[rows[i]];
+            assignments[i] = j;
+            ++sizes[j];
+            clustered.copyRow(i, x, 0);
+            for (int l = 0; l < dimensions; ++l) {
+                sums[j][l] += x[l];
+            }
+        }
+
+        final List<Sample> centroids = new ArrayList<>();
+        for (int j = 0; j < this.clusterCount; ++j) {
+            for (int l = 0; l < dimensions; ++l) {
+                sums[j][l] /= sizes[j];
+            }
+            centroids.add(new Sample(sums[j]));
+        }
+
+        return new Partition(centroids, assignments).toClusterFeatures(clustered);
+
+    }
+
+    /** Returns the rows that belong to some cluster, in increasing order. */
+    public int[] getClusteredRows() {
+
+        int count = 0;
+        for (final int label : this.labels) {
+            if (label != NOISE) {
+                ++count;
+            }
+        }
+
+        final int[] rows = new int[count];
+        count = 0;
+        for (int i = 0; i < this.labels.length; ++i) {
+            if (this.labels[i] != NOISE) {
+                rows[count++] = i;
+            }
+        }
+        return rows;
+
+    }
+
+    /** Returns the rows left as noise, in increasing order. */
+    public int[] getNoiseRows() {
+
+        final int[] rows = new int[this.labels.length - this.getClusteredRows().length];
+        int count = 0;
+        for (int i = 0; i < this.labels.length; ++i) {
+            if (this.labels[i] == NOISE) {
+                rows[count++] = i;
+            }
+        }
+        return rows;
+
+    }
+
+    /** Returns the cluster of each sample, or {@link #NOISE}. */
+    public int[] getLabels() {
+        return labels;
+    }
+
+    public boolean isCore(final int row) {
+        return this.core[row];
+    }
+
+    public int getClusterCount() {
+        return clusterCount;
+    }
+
+    /** Rows of a list of samples, read in place, in the order of the row
+     * indices passed to the constructor.
+     */
+    private static final class ClusteredSamples implements SampleMatrix {
+
+        private final List<Sample> samples;
+        private final int[] rows;
+
+        private ClusteredSamples(final List<Sample> samples, final int[] rows) {
+            this.samples = samples;
+            this.rows = rows;
+        }
+
+        @Override
+        public int size() {
+            return this.rows.length;
+        }
+
+        @Override
+        public int getDimensions() {
+            return this.samples.get(this.rows[0]).getX().length;
+        }
+
+        @Override
+        public double get(final int row, final int column) {
+            return this.samples.get(this.rows[row]).getX()[column];
+        }
+
+        @Override
+        public void copyRow(final int row, final double[] destination, final int offset) {
+            final double[] x = this.samples.get(this.rows[row]).getX();
+            System.arraycopy(x, 0, destination, offset, x.length);
+        }
+
+        @Override
+        public long getT(final int row) {
+            return this.samples.get(this.rows[row]).getT();
+        }
+
+        @Override
+        public Integer getY(final int row) {
+            return this.samples.get(this.rows[row]).getY();
+        }
+
+    }
+
+}
@@ -0,0 +1,219 @@
+package br.com.douglas444.mltk.clustering.dbscan;
+
+import java.util.Arrays;
+
+/** KD-tree over points stored row by row in a flat array, answering ε-range
+ * queries. Nodes split the points of their range at the median of the
+ * dimension with the largest spread, down to leaves of at most
+ * {@link #LEAF_SIZE} points, and a query only descends into a child if the
+ * ball of radius ε around the query crosses the splitting plane. The tree
+ * is stored in parallel arrays indexed by node, the points of each node being
+ * a contiguous range of a permutation of the rows.
+ */
+class KDTree {
+
+    static final int LEAF_SIZE = 16;
+
+    private final double[] points;
+    private final int dimensions;
+    private final int[] order;
+    private final int[] starts;
+    private final int[] ends;
+    private final int[] splitDimensions;
+    private final double[] splitValues;
+    private final int[] left;
+    private final int[] right;
+    private int nodes;
+
+    KDTree(final double[] points, final int dimensions) {
+
+        final int n = points.length / dimensions;
+        final int capacity = 4 * (n / LEAF_SIZE) + 4;
+
+        this.points = points;
+        this.dimensions = dimensions;
+        this.order = new int[n];
+        this.starts = new int[capacity];
+        this.ends = new int[capacity];
+        this.splitDimensions = new int[capacity];
+        this.splitValues = new double[capacity];
+        this.left = new int[capacity];
+        this.right = new int[capacity];
+        this.nodes = 0;
+
+        for (int i = 0; i < n; ++i) {
+            this.order[i] = i;
+        }
+
+        if (n > 0) {
+            this.build(0, n);
+        }
+
+    }
+
+    private int build(final int start, final int end) {
+
+        final int node = this.nodes++;
+        this.starts[node] = start;
+        this.ends[node] = end;
+        this.left[node] = -1;
+        this.right[node] = -1;
+
+        if (end - start <= LEAF_SIZE) {
+            return node;
+        }
+
+        int widest = 0;
+        double widestSpread = -1;
+
+        for (int l = 0; l < this.dimensions; ++l) {
+            double minimum = Double.POSITIVE_INFINITY;
+            double maximum = Double.NEGATIVE_INFINITY;
+            for (int i = start; i < end; ++i) {
+                final double value = this.points[this.order[i] * this.dimensions + l];
+                minimum = Math.min(minimum, value);
+                maximum = Math.max(maximum, value);
+            }
+            if (maximum - minimum > widestSpread) {
+                widestSpread = maximum - minimum;
+                widest = l;
+            }
+        }
+
+        if (widestSpread == 0) {
+            return node;
+        }
+
+        final int middle = (start + end) >>> 1;
+        this.select(start, end - 1, middle, widest);
+
+        this.splitDimensions[node] = widest;
+        this.splitValues[node] = this.points[this.order[middle] * this.dimensions + widest];
+        this.left[node] = this.build(start, middle);
+        this.right[node] = this.build(middle, end);
+
+        return node;
+
+    }
+
+    /** Reorders the range of the permutation so that the k-th position holds
+     * the point that would be there if the range were sorted by the dimension
+     * passed as argument, with no greater point before it and no smaller one
+     * after it.
+     */
+    private void select(int from, int to, final int k, final int dimension) {
+
+        while (from < to) {
+
+            final double pivot = this.points[this.order[(from + to) >>> 1] * this.dimensions + dimension];
+            int i = from;
+            int j = to;
+
+            while (i <= j) {
+                while (this.points[this.order[i] * this.dimensions + dimension] < pivot) {
+                    ++i;
+                }
+                while (this.points[this.order[j] * this.dimensions + dimension] > pivot) {
+                    --j;
+                }
+                if (i <= j) {
+                    final int swap = this.order[i];
+                    this.order[i++] = this.order[j];
+                    this.order[j--] = swap;
+                }
+            }
+
+            if (k <= j) {
+                to = j;
+            } else if (k >= i) {
+                from = i;
+            } else {
+                return;
+            }
+
+        }
+
+    }
+
+    /** Collects into the neighborhood passed as argument, after clearing it,
+     * every point within ε of the point of the row passed as argument, the
+     * point itself included.
+     */
+    void rangeQuery(final int row, final double epsilon, final Neighborhood neighborhood) {
+
+        neighborhood.clear();
+
+        if (this.nodes > 0) {
+            this.rangeQuery(0, row * this.dimensions, epsilon, epsilon * epsilon, neighborhood);
+        }
+
+    }
+
+    private void rangeQuery(final int node, final int offset, final double epsilon, final double squaredEpsilon,
+                            final Neighborhood neighborhood) {
+
+        if (this.left[node] == -1) {
+
+            for (int i = this.starts[node]; i < this.ends[node]; ++i) {
+
+                final int start = this.order[i] * this.dimensions;
+                double sum = 0;
+
+                for (int l = 0; l < this.dimensions && sum <= squaredEpsilon; ++l) {
+                    final double difference = this.points[offset + l] - this.points[start + l];
+                    sum += difference * difference;
+                }
+
+                if (sum <= squaredEpsilon) {
+                    neighborhood.add(this.order[i]);
+                }
+
+            }
+
+            return;
+
+        }
+
+        final double value = this.points[offset + this.splitDimensions[node]];
+
+        if (value - epsilon <= this.splitValues[node]) {
+            this.rangeQuery(this.left[node], offset, epsilon, squaredEpsilon, neighborhood);
+        }
+
+        if (value + epsilon >= this.splitValues[node]) {
+            this.rangeQuery(this.right[node], offset, epsilon, squaredEpsilon, neighborhood);
+        }
+
+    }
+
+    /** Growable list of rows, reused across queries. */
+    static class Neighborhood {
+
+        private int[] rows = new int[32];
+        private int size = 0;
+
+        void clear() {
+            this.size = 0;
+        }
+
+        void add(final int row) {
+
+            if (this.size == this.rows.length) {
+                this.rows = Arrays.copyOf(this.rows, this.size * 2);
+            }
+
+            this.rows[this.size++] = row;
+
+        }
+
+        int get(final int i) {
+            return this.rows[i];
+        }
+
+        int size() {
+            return this.size;
+        }
+
+    }
+
+}
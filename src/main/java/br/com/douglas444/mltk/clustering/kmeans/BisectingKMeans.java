@@ -0,0 +1,141 @@
+package br.com.douglas444.mltk.clustering.kmeans;
+
+import br.com.douglas444.mltk.clustering.ClusteringQuality;
+import br.com.douglas444.mltk.datastructure.Partition;
+import br.com.douglas444.mltk.datastructure.RowSubsetMatrix;
+import br.com.douglas444.mltk.datastructure.Sample;
+import br.com.douglas444.mltk.datastructure.SampleMatrix;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+/** Bisecting k-means: starting from a single cluster holding every row, the
+ * leaf with the largest sum of squared errors is split in two by
+ * {@link KMeansPlusPlus} until there are k leaves. Each split only reads the
+ * rows of the leaf being split, so building the tree costs about
+ * O(n·d·log k) per 2-means iteration for balanced splits, instead of the
+ * O(n·k·d) of a flat k-means iteration, and the resulting
+ * {@link BisectingKMeansTree} assigns a vector in O(log k) for balanced
+ * trees.
+ */
+public final class BisectingKMeans {
+
+    /** Builds a tree with k leaves, or fewer if some leaf cannot be split
+     * because all of its rows are identical.
+     */
+    public static BisectingKMeansTree execute(final SampleMatrix samples, final int k, final Random random) {
+
+        if (k < 1 || samples.size() < k) {
+            throw new IllegalArgumentException();
+        }
+
+        final int n = samples.size();
+        final int dimensions = samples.getDimensions();
+        final List<double[]> centroids = new ArrayList<>();
+        final List<int[]> children = new ArrayList<>();
+        final List<Node> leaves = new ArrayList<>();
+        final PriorityQueue<Node> queue = new PriorityQueue<>((a, b) -> Double.compare(b.sse, a.sse));
+
+        final int[] all = new int[n];
+        for (int i = 0; i < n; ++i) {
+            all[i] = i;
+        }
+
+        final ClusteringQuality rootQuality = ClusteringQuality.of(new Partition(
+                Collections.singletonList(new Sample(new double[dimensions])), new int[n]), samples);
+        centroids.add(rootQuality.getCentroid(0));
+        children.add(null);
+        queue.add(new Node(0, all, rootQuality.calculateSse(0)));
+
+        while (!queue.isEmpty() && leaves.size() + queue.size() < k) {
+
+            final Node node = queue.poll();
+
+            if (node.rows.length < 2 || node.sse == 0) {
+                leaves.add(node);
+                continue;
+            }
+
+            final RowSubsetMatrix subset = new RowSubsetMatrix(samples, node.rows);
+            final Partition split = KMeansPlusPlus.execute(subset, 2, random);
+
+            if (split.getCentroids().size() < 2) {
+                leaves.add(node);
+                continue;
+            }
+
+            final ClusteringQuality quality = ClusteringQuality.of(split, subset);
+            final int[] assignments = split.getAssignments();
+            final int[] childNodes = new int[2];
+
+            for (int j = 0; j < 2; ++j) {
+
+                final int[] rows = new int[quality.getSize(j)];
+                int size = 0;
+                for (int i = 0; i < assignments.length; ++i) {
+                    if (assignments[i] == j) {
+                        rows[size++] = node.rows[i];
+                    }
+                }
+
+                childNodes[j] = centroids.size();
+                centroids.add(quality.getCentroid(j));
+                children.add(null);
+                queue.add(new Node(childNodes[j], rows, quality.calculateSse(j)));
+
+            }
+
+            children.set(node.index, childNodes);
+
+        }
+
+        leaves.addAll(queue);
+        leaves.sort((a, b) -> Integer.compare(a.index, b.index));
+
+        final int nodes = centroids.size();
+        final double[] flatCentroids = new double[nodes * dimensions];
+        final int[] left = new int[nodes];
+        final int[] right = new int[nodes];
+        final int[] leafOfNode = new int[nodes];
+
+        for (int node = 0; node < nodes; ++node) {
+            System.arraycopy(centroids.get(node), 0, flatCentroids, node * dimensions, dimensions);
+            left[node] = children.get(node) == null ? -1 : children.get(node)[0];
+            right[node] = children.get(node) == null ? -1 : children.get(node)[1];
+            leafOfNode[node] = -1;
+        }
+
+        final List<Sample> leafCentroids = new ArrayList<>();
+        final int[] assignments = new int[n];
+
+        for (final Node leaf : leaves) {
+            leafOfNode[leaf.index] = leafCentroids.size();
+            for (final int row : leaf.rows) {
+                assignments[row] = leafCentroids.size();
+            }
+            leafCentroids.add(new Sample(centroids.get(leaf.index).clone()));
+        }
+
+        return new BisectingKMeansTree(dimensions, flatCentroids, left, right, leafOfNode,
+                new Partition(leafCentroids, assignments));
+
+    }
+
+    private static class Node {
+
+        private final int index;
+        private final int[] rows;
+        private final double sse;
+
+        private Node(final int index, final int[] rows, final double sse) {
+            this.index = index;
+            this.rows = rows;
+            this.sse = sse;
+        }
+
+    }
+
+}
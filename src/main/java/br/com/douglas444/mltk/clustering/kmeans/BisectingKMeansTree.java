@@ -0,0 +1,135 @@
+package br.com.douglas444.mltk.clustering.kmeans;
+
+import br.com.douglas444.mltk.datastructure.ClusterFeature;
+import br.com.douglas444.mltk.datastructure.Partition;
+import br.com.douglas444.mltk.datastructure.SampleMatrix;
+
+import java.util.List;
+
+/** Binary tree built by {@link BisectingKMeans}. Every internal node holds the
+ * centroids of its two children, and a vector is assigned to a leaf by
+ * descending to the closer child at each level, with two distance
+ * computations per level instead of one per leaf. The leaf found is the
+ * closest one in most cases, but not always: a vector close to the boundary
+ * between two subtrees may end up in a leaf of the wrong one.
+ */
+public class BisectingKMeansTree {
+
+    private final int dimensions;
+    private final double[] centroids;
+    private final int[] left;
+    private final int[] right;
+    private final int[] leaves;
+    private final Partition partition;
+
+    /**
+     * @param centroids Centroid of every node, node by node.
+     * @param left Left child of every node, or -1 for a leaf.
+     * @param right Right child of every node, or -1 for a leaf.
+     * @param leaves Index of the leaf of every node, or -1 for an internal
+     * node.
+     * @param partition Partition of the rows the tree was built from into its
+     * leaves.
+     */
+    BisectingKMeansTree(final int dimensions, final double[] centroids, final int[] left, final int[] right,
+                        final int[] leaves, final Partition partition) {
+        this.dimensions = dimensions;
+        this.centroids = centroids;
+        this.left = left;
+        this.right = right;
+        this.leaves = leaves;
+        this.partition = partition;
+    }
+
+    /** Returns the index of the leaf the vector passed as argument descends
+     * to, in time proportional to the depth of that leaf.
+     */
+    public int assign(final double[] x) {
+
+        if (x.length != this.dimensions) {
+            throw new IllegalArgumentException();
+        }
+
+        return this.descend(x);
+
+    }
+
+    /** Assigns every row of the matrix passed as argument to a leaf.
+     *
+     * @return Returns the leaf of each row.
+     */
+    public int[] assign(final SampleMatrix samples) {
+
+        if (samples.getDimensions() != this.dimensions) {
+            throw new IllegalArgumentException();
+        }
+
+        final int[] assignments = new int[samples.size()];
+        final double[] x = new double[this.dimensions];
+
+        for (int i = 0; i < assignments.length; ++i) {
+            samples.copyRow(i, x, 0);
+            assignments[i] = this.descend(x);
+        }
+
+        return assignments;
+
+    }
+
+    private int descend(final double[] x) {
+
+        int node = 0;
+
+        while (this.left[node] != -1) {
+            node = this.squaredDistance(x, this.left[node]) <= this.squaredDistance(x, this.right[node])
+                    ? this.left[node]
+                    : this.right[node];
+        }
+
+        return this.leaves[node];
+
+    }
+
+    private double squaredDistance(final double[] x, final int node) {
+
+        final int start = node * this.dimensions;
+        double sum = 0;
+
+        for (int l = 0; l < this.dimensions; ++l) {
+            final double difference = x[l] - this.centroids[start + l];
+            sum += difference * difference;
+        }
+
+        return sum;
+
+    }
+
+    /** Summarizes each leaf as a {@link ClusterFeature}, in the order of the
+     * leaf indices, from the rows of the matrix the tree was built from.
+     */
+    public List<ClusterFeature> toClusterFeatures(final SampleMatrix samples) {
+        return this.partition.toClusterFeatures(samples);
+    }
+
+    /** Returns the leaves of the rows the tree was built from, as assigned
+     * while splitting, with the leaf centroids.
+     */
+    public Partition getPartition() {
+        return partition;
+    }
+
+    /** Returns the number of leaves. */
+    public int size() {
+        return this.partition.getCentroids().size();
+    }
+
+    /** Returns the number of levels below the root of the deepest leaf. */
+    public int getDepth() {
+        return this.depthOf(0);
+    }
+
+    private int depthOf(final int node) {
+        return this.left[node] == -1 ? 0 : 1 + Math.max(this.depthOf(this.left[node]), this.depthOf(this.right[node]));
+    }
+
+}
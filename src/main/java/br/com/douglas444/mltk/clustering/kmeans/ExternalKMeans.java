@@ -0,0 +1,203 @@
+package br.com.douglas444.mltk.clustering.kmeans;
+
+import br.com.douglas444.mltk.datastructure.Sample;
+import br.com.douglas444.mltk.datastructure.SampleBatch;
+import br.com.douglas444.mltk.io.SampleFileScanner;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/** Out-of-core k-means over a binary sample file. Each iteration is one
+ * sequential pass of a {@link SampleFileScanner}, so only the current chunk,
+ * the next one being prefetched, the k centroids and their accumulators are
+ * held in memory, whatever the size of the file.
+ *
+ * The assignments, when asked for, are written to a file of little-endian ints,
+ * one per sample in file order, mapped into memory and rewritten on every pass.
+ * Since samples are not kept between passes, the clusters left empty keep their
+ * centroid and their index, so the returned list always has k centroids.
+ *
+ * The centroids are considered converged once no value moves by more than
+ * {@link #TOLERANCE} relative to its magnitude between two passes. Rows with a
+ * value that is not finite, such as a missing value read as NaN, are rejected,
+ * since a single one would make its centroid NaN for good.
+ */
+public final class ExternalKMeans {
+
+    private static final long ASSIGNMENTS_PER_MAPPING = 1 << 28;
+    private static final double TOLERANCE = 1e-9;
+    private static final int DEFAULT_MAX_PASSES = 300;
+
+    /** Same as {@link #execute(SampleFileScanner, List, Path, int)} from k
+     * random samples, with at most 300 passes over the file.
+     */
+    public static List<Sample> execute(final SampleFileScanner samples, final int k, final Random random,
+                                       final Path assignments) throws IOException {
+
+        return execute(samples, chooseCentroids(samples, k, random), assignments, DEFAULT_MAX_PASSES);
+
+    }
+
+    /**
+     * @param assignments File to write the assignments to, or null.
+     * @param maxPasses Maximum number of passes over the file; the last
+     * centroids are returned if they did not converge by then.
+     * @throws IllegalArgumentException If a row has a value that is not
+     * finite.
+     */
+    public static List<Sample> execute(final SampleFileScanner samples, final List<Sample> centroids,
+                                       final Path assignments, final int maxPasses) throws IOException {
+
+        if (centroids.isEmpty() || maxPasses < 1) {
+            throw new IllegalArgumentException();
+        }
+
+        final int k = centroids.size();
+        final int dimensions = samples.getDimensions();
+        final double[] flatCentroids = KMeans.flatten(centroids, dimensions);
+        final double[] sums = new double[k * dimensions];
+        final int[] counts = new int[k];
+        final ByteBuffer[] output = assignments == null ? null : map(assignments, samples.size());
+        final long[] row = new long[1];
+
+        boolean changing = true;
+
+        for (int pass = 0; pass < maxPasses && changing; ++pass) {
+
+            Arrays.fill(sums, 0);
+            Arrays.fill(counts, 0);
+            row[0] = 0;
+
+            samples.forEachChunk(batch -> {
+
+                final double[] x = batch.getX();
+                final double[] sample = new double[dimensions];
+
+                for (int i = 0; i < batch.size(); ++i) {
+
+                    System.arraycopy(x, i * dimensions, sample, 0, dimensions);
+                    for (int l = 0; l < dimensions; ++l) {
+                        if (!Double.isFinite(sample[l])) {
+                            throw new IllegalArgumentException("Row " + (row[0] + i) + " has a value that is not "
+                                    + "finite");
+                        }
+                    }
+
+                    final int closest = KMeans.closestCentroid(sample, flatCentroids, k, dimensions);
+
+                    final int offset = closest * dimensions;
+                    for (int l = 0; l < dimensions; ++l) {
+                        sums[offset + l] += sample[l];
+                    }
+                    ++counts[closest];
+
+                    if (output != null) {
+                        final long index = row[0] + i;
+                        output[(int) (index / ASSIGNMENTS_PER_MAPPING)]
+                                .putInt((int) (index % ASSIGNMENTS_PER_MAPPING) * Integer.BYTES, closest);
+                    }
+
+                }
+
+                row[0] += batch.size();
+
+            });
+
+            changing = false;
+
+            for (int j = 0; j < k; ++j) {
+                if (counts[j] > 0) {
+                    for (int l = 0; l < dimensions; ++l) {
+                        final double mean = sums[j * dimensions + l] / counts[j];
+                        final double old = flatCentroids[j * dimensions + l];
+                        if (Math.abs(mean - old) > TOLERANCE * Math.max(1, Math.abs(old))) {
+                            changing = true;
+                        }
+                        flatCentroids[j * dimensions + l] = mean;
+                    }
+                }
+            }
+
+        }
+
+        if (output != null) {
+            for (final ByteBuffer buffer : output) {
+                ((MappedByteBuffer) buffer).force();
+            }
+        }
+
+        final List<Sample> result = new ArrayList<>();
+        for (int j = 0; j < k; ++j) {
+            result.add(new Sample(Arrays.copyOfRange(flatCentroids, j * dimensions, (j + 1) * dimensions)));
+        }
+
+        return result;
+
+    }
+
+    /** Chooses k samples uniformly at random in a single pass, by reservoir
+     * sampling.
+     */
+    static List<Sample> chooseCentroids(final SampleFileScanner samples, final int k, final Random random)
+            throws IOException {
+
+        if (k < 1) {
+            throw new IllegalArgumentException();
+        }
+
+        final List<Sample> reservoir = new ArrayList<>();
+        final long[] seen = new long[1];
+
+        samples.forEachChunk((SampleBatch batch) -> {
+            for (int i = 0; i < batch.size(); ++i) {
+                final long index = seen[0]++;
+                if (index < k) {
+                    reservoir.add(batch.getSample(i));
+                } else {
+                    final long j = (long) (random.nextDouble() * (index + 1));
+                    if (j < k) {
+                        reservoir.set((int) j, batch.getSample(i));
+                    }
+                }
+            }
+        });
+
+        if (reservoir.isEmpty()) {
+            throw new IllegalArgumentException();
+        }
+
+        return reservoir;
+
+    }
+
+    private static ByteBuffer[] map(final Path path, final long size) throws IOException {
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+
+            final ByteBuffer[] buffers = new ByteBuffer[(int) ((size + ASSIGNMENTS_PER_MAPPING - 1)
+                    / ASSIGNMENTS_PER_MAPPING)];
+
+            for (int i = 0; i < buffers.length; ++i) {
+                final long first = i * ASSIGNMENTS_PER_MAPPING;
+                final long count = Math.min(ASSIGNMENTS_PER_MAPPING, size - first);
+                buffers[i] = channel.map(FileChannel.MapMode.READ_WRITE, first * Integer.BYTES,
+                        count * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            }
+
+            return buffers;
+
+        }
+
+    }
+
+}
@@ -0,0 +1,414 @@
+package br.com.douglas444.mltk.clustering.kmeans;
+
+import br.com.douglas444.mltk.datastructure.Cluster;
+import br.com.douglas444.mltk.datastructure.Sample;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/** Warm-started k-means that keeps a previous solution alive between
+ * rebuilds. Each cluster is tracked by its linear sum and count, so adding or
+ * removing a sample only updates the statistics of one cluster, and each
+ * sample keeps an upper bound on the distance to its centroid and a lower
+ * bound on the distance to any other centroid (Hamerly's bounds), so that a
+ * rebuild only measures again the samples whose bounds were loosened enough by
+ * the centroid movements to allow a different assignment.
+ *
+ * The instance is meant to be kept between rebuilds: building it costs one
+ * full assignment pass, while each later {@link #execute()} costs roughly in
+ * proportion to the samples affected by the changes since the previous one.
+ */
+public final class IncrementalKMeans {
+
+    private final int k;
+    private final int dimensions;
+
+    private final double[] centroids;
+    private final double[] sums;
+    private final int[] counts;
+
+    private final List<Sample> samples;
+    private final IdentityHashMap<Sample, Integer> indexBySample;
+    private int[] assignments;
+    private double[] upperBounds;
+    private double[] lowerBounds;
+
+    /**
+     * @param assignments Index, in the list of centroids, of the cluster each
+     * sample was assigned to by the previous solution.
+     * @throws IllegalArgumentException If the same sample instance appears
+     * more than once.
+     */
+    public IncrementalKMeans(final List<Sample> samples, final List<Sample> centroids, final int[] assignments) {
+
+        if (centroids.isEmpty() || samples.size() != assignments.length) {
+            throw new IllegalArgumentException();
+        }
+
+        this.k = centroids.size();
+        this.dimensions = centroids.get(0).getX().length;
+
+        this.centroids = new double[this.k * this.dimensions];
+        this.sums = new double[this.k * this.dimensions];
+        this.counts = new int[this.k];
+
+        for (int j = 0; j < this.k; ++j) {
+            System.arraycopy(centroids.get(j).getX(), 0, this.centroids, j * this.dimensions, this.dimensions);
+        }
+
+        this.samples = new ArrayList<>(samples.size());
+        this.indexBySample = new IdentityHashMap<>(samples.size());
+        this.assignments = new int[Math.max(16, samples.size())];
+        this.upperBounds = new double[this.assignments.length];
+        this.lowerBounds = new double[this.assignments.length];
+
+        for (int i = 0; i < samples.size(); ++i) {
+
+            if (assignments[i] < 0 || assignments[i] >= this.k || this.indexBySample.containsKey(samples.get(i))) {
+                throw new IllegalArgumentException();
+            }
+
+            this.append(samples.get(i), assignments[i]);
+            this.upperBounds[i] = this.distance(samples.get(i).getX(), assignments[i]);
+            this.lowerBounds[i] = this.distanceToTheClosestOtherCentroid(samples.get(i).getX(), assignments[i]);
+
+        }
+
+    }
+
+    /** Builds the incremental state from the clusters returned by
+     * {@link KMeans#execute}, using the centroid of each cluster.
+     */
+    public static IncrementalKMeans fromClusters(final List<Cluster> clusters) {
+
+        final List<Sample> samples = new ArrayList<>();
+        final List<Sample> centroids = new ArrayList<>();
+        final List<Integer> assignments = new ArrayList<>();
+
+        for (int j = 0; j < clusters.size(); ++j) {
+            final int clusterIndex = j;
+            centroids.add(clusters.get(j).calculateCentroid());
+            clusters.get(j).getSamples().forEach(sample -> {
+                samples.add(sample);
+                assignments.add(clusterIndex);
+            });
+        }
+
+        return new IncrementalKMeans(samples, centroids, assignments.stream().mapToInt(i -> i).toArray());
+
+    }
+
+    /** Adds a sample to the cluster of the closest current centroid. The
+     * centroids themselves are only updated by {@link #execute()}.
+     */
+    public void add(final Sample sample) {
+
+        if (sample.getX().length != this.dimensions || this.indexBySample.containsKey(sample)) {
+            throw new IllegalArgumentException();
+        }
+
+        final double[] x = sample.getX();
+        int closest = 0;
+        double minimum = Double.POSITIVE_INFINITY;
+        double second = Double.POSITIVE_INFINITY;
+
+        for (int j = 0; j < this.k; ++j) {
+            final double distance = this.distance(x, j);
+            if (distance < minimum) {
+                second = minimum;
+                minimum = distance;
+                closest = j;
+            } else if (distance < second) {
+                second = distance;
+            }
+        }
+
+        final int index = this.samples.size();
+        this.append(sample, closest);
+        this.upperBounds[index] = minimum;
+        this.lowerBounds[index] = second;
+
+    }
+
+    /** Removes a sample, subtracting it from the statistics of its cluster.
+     *
+     * @return Returns false if the sample is not part of the solution.
+     */
+    public boolean remove(final Sample sample) {
+
+        final Integer index = this.indexBySample.remove(sample);
+
+        if (index == null) {
+            return false;
+        }
+
+        this.accumulate(sample.getX(), this.assignments[index], -1);
+
+        final int last = this.samples.size() - 1;
+        final Sample moved = this.samples.remove(last);
+
+        if (index != last) {
+            this.samples.set(index, moved);
+            this.indexBySample.put(moved, index);
+            this.assignments[index] = this.assignments[last];
+            this.upperBounds[index] = this.upperBounds[last];
+            this.lowerBounds[index] = this.lowerBounds[last];
+        }
+
+        return true;
+
+    }
+
+    /** Runs k-means from the current solution until no sample changes cluster.
+     *
+     * @return Returns the non-empty clusters of the updated solution.
+     */
+    public List<Cluster> execute() {
+
+        final double[] movements = new double[this.k];
+        final double[] halfSeparations = new double[this.k];
+        this.updateCentroids(movements);
+        this.updateBounds(movements);
+        boolean changing = true;
+
+        while (changing) {
+
+            this.calculateHalfSeparations(halfSeparations);
+            changing = false;
+
+            for (int i = 0; i < this.samples.size(); ++i) {
+
+                final int assigned = this.assignments[i];
+                final double threshold = Math.max(halfSeparations[assigned], this.lowerBounds[i]);
+
+                if (this.upperBounds[i] <= threshold) {
+                    continue;
+                }
+
+                final double[] x = this.samples.get(i).getX();
+                this.upperBounds[i] = this.distance(x, assigned);
+
+                if (this.upperBounds[i] <= threshold) {
+                    continue;
+                }
+
+                int closest = assigned;
+                double minimum = this.upperBounds[i];
+                double second = Double.POSITIVE_INFINITY;
+
+                for (int j = 0; j < this.k; ++j) {
+                    if (j == assigned) {
+                        continue;
+                    }
+                    final double distance = this.distance(x, j);
+                    if (distance < minimum) {
+                        second = minimum;
+                        minimum = distance;
+                        closest = j;
+                    } else if (distance < second) {
+                        second = distance;
+                    }
+                }
+
+                this.upperBounds[i] = minimum;
+                this.lowerBounds[i] = second;
+
+                if (closest != assigned) {
+                    this.accumulate(x, assigned, -1);
+                    this.accumulate(x, closest, 1);
+                    this.assignments[i] = closest;
+                    changing = true;
+                }
+
+            }
+
+            if (this.updateCentroids(movements)) {
+                this.updateBounds(movements);
+                changing = true;
+            }
+
+        }
+
+        return this.getClusters();
+
+    }
+
+    public List<Cluster> getClusters() {
+
+        final List<List<Sample>> groups = new ArrayList<>();
+        for (int j = 0; j < this.k; ++j) {
+            groups.add(new ArrayList<>());
+        }
+
+        for (int i = 0; i < this.samples.size(); ++i) {
+            groups.get(this.assignments[i]).add(this.samples.get(i));
+        }
+
+        final List<Cluster> clusters = new ArrayList<>();
+        groups.stream().filter(group -> !group.isEmpty()).forEach(group -> clusters.add(new Cluster(group)));
+        return clusters;
+
+    }
+
+    /** Returns the current centroids, including those of empty clusters, which
+     * keep their last position.
+     */
+    public List<Sample> getCentroids() {
+
+        final List<Sample> centroids = new ArrayList<>();
+        for (int j = 0; j < this.k; ++j) {
+            final double[] x = new double[this.dimensions];
+            System.arraycopy(this.centroids, j * this.dimensions, x, 0, this.dimensions);
+            centroids.add(new Sample(x));
+        }
+        return centroids;
+
+    }
+
+    public int[] getAssignments() {
+        final int[] assignments = new int[this.samples.size()];
+        System.arraycopy(this.assignments, 0, assignments, 0, assignments.length);
+        return assignments;
+    }
+
+    public List<Sample> getSamples() {
+        return new ArrayList<>(this.samples);
+    }
+
+    private void append(final Sample sample, final int cluster) {
+
+        final int index = this.samples.size();
+
+        if (index == this.assignments.length) {
+            final int capacity = this.assignments.length * 2;
+            final int[] assignments = new int[capacity];
+            final double[] upperBounds = new double[capacity];
+            final double[] lowerBounds = new double[capacity];
+            System.arraycopy(this.assignments, 0, assignments, 0, index);
+            System.arraycopy(this.upperBounds, 0, upperBounds, 0, index);
+            System.arraycopy(this.lowerBounds, 0, lowerBounds, 0, index);
+            this.assignments = assignments;
+            this.upperBounds = upperBounds;
+            this.lowerBounds = lowerBounds;
+        }
+
+        this.samples.add(sample);
+        this.indexBySample.put(sample, index);
+        this.assignments[index] = cluster;
+        this.accumulate(sample.getX(), cluster, 1);
+
+    }
+
+    private void accumulate(final double[] x, final int cluster, final int sign) {
+
+        final int offset = cluster * this.dimensions;
+        for (int l = 0; l < this.dimensions; ++l) {
+            this.sums[offset + l] += sign * x[l];
+        }
+        this.counts[cluster] += sign;
+
+    }
+
+    private boolean updateCentroids(final double[] movements) {
+
+        boolean moved = false;
+
+        for (int j = 0; j < this.k; ++j) {
+
+            movements[j] = 0;
+
+            if (this.counts[j] == 0) {
+                continue;
+            }
+
+            final int offset = j * this.dimensions;
+            double sum = 0;
+
+            for (int l = 0; l < this.dimensions; ++l) {
+                final double mean = this.sums[offset + l] / this.counts[j];
+                final double difference = mean - this.centroids[offset + l];
+                sum += difference * difference;
+                this.centroids[offset + l] = mean;
+            }
+
+            movements[j] = Math.sqrt(sum);
+            moved |= movements[j] > 0;
+
+        }
+
+        return moved;
+
+    }
+
+    private void updateBounds(final double[] movements) {
+
+        int largest = 0;
+        int secondLargest = -1;
+
+        for (int j = 1; j < this.k; ++j) {
+            if (movements[j] > movements[largest]) {
+                secondLargest = largest;
+                largest = j;
+            } else if (secondLargest == -1 || movements[j] > movements[secondLargest]) {
+                secondLargest = j;
+            }
+        }
+
+        for (int i = 0; i < this.samples.size(); ++i) {
+            final int assigned = this.assignments[i];
+            this.upperBounds[i] += movements[assigned];
+            if (secondLargest != -1) {
+                this.lowerBounds[i] -= assigned == largest ? movements[secondLargest] : movements[largest];
+            }
+        }
+
+    }
+
+    private void calculateHalfSeparations(final double[] halfSeparations) {
+
+        for (int j = 0; j < this.k; ++j) {
+            halfSeparations[j] = Double.POSITIVE_INFINITY;
+        }
+
+        for (int j = 0; j < this.k; ++j) {
+            for (int l = j + 1; l < this.k; ++l) {
+                double sum = 0;
+                for (int m = 0; m < this.dimensions; ++m) {
+                    final double difference = this.centroids[j * this.dimensions + m]
+                            - this.centroids[l * this.dimensions + m];
+                    sum += difference * difference;
+                }
+                final double half = Math.sqrt(sum) / 2;
+                halfSeparations[j] = Math.min(halfSeparations[j], half);
+                halfSeparations[l] = Math.min(halfSeparations[l], half);
+            }
+        }
+
+    }
+
+    private double distanceToTheClosestOtherCentroid(final double[] x, final int cluster) {
+
+        double minimum = Double.POSITIVE_INFINITY;
+        for (int j = 0; j < this.k; ++j) {
+            if (j != cluster) {
+                minimum = Math.min(minimum, this.distance(x, j));
+            }
+        }
+        return minimum;
+
+    }
+
+    private double distance(final double[] x, final int cluster) {
+
+        final int offset = cluster * this.dimensions;
+        double sum = 0;
+        for (int l = 0; l < this.dimensions; ++l) {
+            final double difference = x[l] - this.centroids[offset + l];
+            sum += difference * difference;
+        }
+        return Math.sqrt(sum);
+
+    }
+
+}
@@ -1,34 +1,95 @@
 package br.com.douglas444.mltk.clustering.kmeans;
 
+import br.com.douglas444.mltk.clustering.CancellationToken;
+import br.com.douglas444.mltk.clustering.ClusteringListener;
+import br.com.douglas444.mltk.clustering.ClusteringResult;
 import br.com.douglas444.mltk.datastructure.Cluster;
+import br.com.douglas444.mltk.datastructure.Partition;
 import br.com.douglas444.mltk.datastructure.Sample;
+import br.com.douglas444.mltk.datastructure.SampleMatrix;
+import br.com.douglas444.mltk.datastructure.SparseSampleMatrix;
+import br.com.douglas444.mltk.util.FlightRecorder;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Random;
+import java.util.Set;
 
 public final class KMeans {
 
     public static List<Cluster> execute(List<Sample> samples, final int k, final Random random) {
+        return execute(samples, k, random, ClusteringListener.NONE);
+    }
+
+    public static List<Cluster> execute(List<Sample> samples, final int k, final Random random,
+                                        final ClusteringListener listener) {
+        return execute(samples, k, random, CancellationToken.NONE, listener).getSolution();
+    }
+
+    public static ClusteringResult<List<Cluster>> execute(List<Sample> samples, final int k, final Random random,
+                                                          final CancellationToken token,
+                                                          final ClusteringListener listener) {
 
         samples = new ArrayList<>(samples);
+
+        final Object event = FlightRecorder.beginSeeding();
+        final long start = listener != ClusteringListener.NONE ? System.nanoTime() : 0;
         final List<Sample> centroids = chooseCentroids(samples, k, random);
-        return execute(samples, centroids);
+        FlightRecorder.commitSeeding(event, "random", samples.size(), k);
+        if (listener != ClusteringListener.NONE) {
+            listener.onPhaseCompleted(ClusteringListener.Phase.SEEDING, System.nanoTime() - start);
+        }
+
+        return execute(samples, centroids, token, listener);
 
     }
 
     public static List<Cluster> execute(List<Sample> samples, List<Sample> centroids) {
+        return execute(samples, centroids, ClusteringListener.NONE);
+    }
+
+    public static List<Cluster> execute(List<Sample> samples, List<Sample> centroids,
+                                        final ClusteringListener listener) {
+        return execute(samples, centroids, CancellationToken.NONE, listener).getSolution();
+    }
+
+    /** Anytime version of {@link #execute(List, List, ClusteringListener)}:
+     * the token passed as argument is checked after each iteration, and once
+     * it is cancelled the clusters of that iteration are returned, flagged as
+     * not converged. An iteration never increases the sum of squared errors,
+     * so they are the best found so far. At least one iteration is run.
+     */
+    public static ClusteringResult<List<Cluster>> execute(List<Sample> samples, List<Sample> centroids,
+                                                          final CancellationToken token,
+                                                          final ClusteringListener listener) {
 
         samples = new ArrayList<>(samples);
         centroids = new ArrayList<>(centroids);
 
+        final Object event = FlightRecorder.beginKMeans();
+        final int k = centroids.size();
+        final boolean instrumented = listener != ClusteringListener.NONE;
+        int iteration = 0;
+        boolean changing;
         List<Cluster> clusters;
         List<Sample> oldCentroids;
 
         do {
 
+            ++iteration;
+            long start = instrumented ? System.nanoTime() : 0;
+
             clusters = groupByClosestCentroid(samples, centroids);
+
+            if (instrumented) {
+                listener.onPhaseCompleted(ClusteringListener.Phase.ASSIGNMENT, System.nanoTime() - start);
+                listener.onDistanceComputations((long) samples.size() * centroids.size());
+                start = System.nanoTime();
+            }
+
             oldCentroids = new ArrayList<>(centroids);
             centroids.clear();
 
@@ -37,9 +98,387 @@ public final class KMeans {
                     .map(Cluster::calculateCentroid)
                     .forEach(centroids::add);
 
-        } while(!oldCentroids.containsAll(centroids));
+            if (instrumented) {
+                listener.onPhaseCompleted(ClusteringListener.Phase.UPDATE, System.nanoTime() - start);
+                listener.onIteration(iteration, calculateSse(clusters, centroids));
+            }
+
+            changing = !oldCentroids.containsAll(centroids);
+
+        } while (changing && !token.isCancelled());
+
+        FlightRecorder.commitKMeans(event, samples.size(), samples.isEmpty() ? 0 : samples.get(0).getX().length, k,
+                iteration);
+
+        return new ClusteringResult<>(clusters, !changing, iteration);
+    }
+
+    public static Partition execute(final SampleMatrix samples, final int k, final Random random) {
+        return execute(samples, k, random, ClusteringListener.NONE);
+    }
+
+    public static Partition execute(final SampleMatrix samples, final int k, final Random random,
+                                    final ClusteringListener listener) {
+        return execute(samples, k, random, CancellationToken.NONE, listener).getSolution();
+    }
+
+    public static ClusteringResult<Partition> execute(final SampleMatrix samples, final int k, final Random random,
+                                                      final CancellationToken token,
+                                                      final ClusteringListener listener) {
+
+        final Object event = FlightRecorder.beginSeeding();
+        final long start = listener != ClusteringListener.NONE ? System.nanoTime() : 0;
+        final List<Sample> centroids = chooseCentroids(samples, k, random);
+        FlightRecorder.commitSeeding(event, "random", samples.size(), k);
+        if (listener != ClusteringListener.NONE) {
+            listener.onPhaseCompleted(ClusteringListener.Phase.SEEDING, System.nanoTime() - start);
+        }
+
+        return execute(samples, centroids, token, listener);
+
+    }
+
+    public static Partition execute(final SampleMatrix samples, final List<Sample> centroids) {
+        return execute(samples, centroids, ClusteringListener.NONE);
+    }
+
+    /** Runs k-means over the rows of the matrix passed as argument, reading one
+     * row at a time, so that matrices kept off the heap or mapped from a file
+     * are never materialized as samples. Rows stored as floats, as in a
+     * {@link br.com.douglas444.mltk.datastructure.FloatSampleMatrix}, are
+     * widened as they are read and the centroids are summed in double. Rows of
+     * a {@link SparseSampleMatrix} are never densified, only their non-zero
+     * values are read. Clusters that end up empty are left out of the
+     * returned partition.
+     */
+    public static Partition execute(final SampleMatrix samples, final List<Sample> centroids,
+                                    final ClusteringListener listener) {
+        return execute(samples, centroids, CancellationToken.NONE, listener).getSolution();
+    }
+
+    /** Anytime version of {@link #execute(SampleMatrix, List, ClusteringListener)},
+     * checking the token passed as argument after each iteration, see
+     * {@link #execute(List, List, CancellationToken, ClusteringListener)}.
+     */
+    public static ClusteringResult<Partition> execute(final SampleMatrix samples, final List<Sample> centroids,
+                                                      final CancellationToken token,
+                                                      final ClusteringListener listener) {
+
+        if (centroids.isEmpty()) {
+            throw new IllegalArgumentException();
+        }
+
+        if (samples instanceof SparseSampleMatrix) {
+            return executeSparse((SparseSampleMatrix) samples, centroids, token, listener);
+        }
+
+        final Object event = FlightRecorder.beginKMeans();
+        final boolean instrumented = listener != ClusteringListener.NONE;
+        int iteration = 0;
+
+        final int n = samples.size();
+        final int k = centroids.size();
+        final int dimensions = samples.getDimensions();
+        final double[] flatCentroids = flatten(centroids, dimensions);
+        final double[] sums = new double[k * dimensions];
+        final int[] counts = new int[k];
+        final int[] assignments = new int[n];
+        final double[] x = new double[dimensions];
+        boolean changing;
+
+        Arrays.fill(assignments, -1);
+
+        do {
+
+            ++iteration;
+            long start = instrumented ? System.nanoTime() : 0;
+
+            changing = false;
+            Arrays.fill(sums, 0);
+            Arrays.fill(counts, 0);
+
+            for (int i = 0; i < n; ++i) {
+
+                samples.copyRow(i, x, 0);
+                final int closest = closestCentroid(x, flatCentroids, k, dimensions);
+
+                if (closest != assignments[i]) {
+                    assignments[i] = closest;
+                    changing = true;
+                }
+
+                final int offset = closest * dimensions;
+                for (int l = 0; l < dimensions; ++l) {
+                    sums[offset + l] += x[l];
+                }
+                ++counts[closest];
+
+            }
+
+            if (instrumented) {
+                listener.onPhaseCompleted(ClusteringListener.Phase.ASSIGNMENT, System.nanoTime() - start);
+                listener.onDistanceComputations((long) n * k);
+                start = System.nanoTime();
+            }
+
+            for (int j = 0; j < k; ++j) {
+                if (counts[j] > 0) {
+                    for (int l = 0; l < dimensions; ++l) {
+                        flatCentroids[j * dimensions + l] = sums[j * dimensions + l] / counts[j];
+                    }
+                }
+            }
+
+            if (instrumented) {
+                listener.onPhaseCompleted(ClusteringListener.Phase.UPDATE, System.nanoTime() - start);
+                listener.onIteration(iteration, calculateSse(samples, flatCentroids, assignments));
+            }
+
+        } while (changing && !token.isCancelled());
+
+        FlightRecorder.commitKMeans(event, n, dimensions, k, iteration);
+
+        return new ClusteringResult<>(toPartition(flatCentroids, counts, assignments, dimensions), !changing,
+                iteration);
+
+    }
+
+    /** Sparse version of the matrix k-means. The distance from a row to a
+     * centroid is ‖x‖² + ‖c‖² − 2x·c, with the squared norms of the rows cached
+     * by the matrix and those of the centroids computed once per iteration, so
+     * assigning a row and adding it to the sums of its cluster both read only
+     * its non-zero values. Only the final division of the sums, once per
+     * centroid and iteration, is proportional to the dimensions.
+     */
+    private static ClusteringResult<Partition> executeSparse(final SparseSampleMatrix samples,
+                                                             final List<Sample> centroids,
+                                                             final CancellationToken token,
+                                                             final ClusteringListener listener) {
+
+        final Object event = FlightRecorder.beginKMeans();
+        final boolean instrumented = listener != ClusteringListener.NONE;
+        int iteration = 0;
+
+        final int n = samples.size();
+        final int k = centroids.size();
+        final int dimensions = samples.getDimensions();
+        final double[] flatCentroids = flatten(centroids, dimensions);
+        final double[] squaredNorms = new double[k];
+        final double[] sums = new double[k * dimensions];
+        final int[] counts = new int[k];
+        final int[] assignments = new int[n];
+        boolean changing;
+
+        Arrays.fill(assignments, -1);
+
+        do {
+
+            ++iteration;
+            long start = instrumented ? System.nanoTime() : 0;
+
+            changing = false;
+            Arrays.fill(sums, 0);
+            Arrays.fill(counts, 0);
+
+            for (int j = 0; j < k; ++j) {
+                double squaredNorm = 0;
+                for (int l = j * dimensions; l < (j + 1) * dimensions; ++l) {
+                    squaredNorm += flatCentroids[l] * flatCentroids[l];
+                }
+                squaredNorms[j] = squaredNorm;
+            }
+
+            for (int i = 0; i < n; ++i) {
+
+                int closest = 0;
+                double minimum = Double.POSITIVE_INFINITY;
+
+                for (int j = 0; j < k; ++j) {
+                    final double distance = squaredNorms[j] - 2 * samples.dot(i, flatCentroids, j * dimensions);
+                    if (distance < minimum) {
+                        minimum = distance;
+                        closest = j;
+                    }
+                }
+
+                if (closest != assignments[i]) {
+                    assignments[i] = closest;
+                    changing = true;
+                }
+
+                samples.addTo(i, sums, closest * dimensions, 1);
+                ++counts[closest];
+
+            }
+
+            if (instrumented) {
+                listener.onPhaseCompleted(ClusteringListener.Phase.ASSIGNMENT, System.nanoTime() - start);
+                listener.onDistanceComputations((long) n * k);
+                start = System.nanoTime();
+            }
+
+            for (int j = 0; j < k; ++j) {
+                if (counts[j] > 0) {
+                    for (int l = 0; l < dimensions; ++l) {
+                        flatCentroids[j * dimensions + l] = sums[j * dimensions + l] / counts[j];
+                    }
+                }
+            }
+
+            if (instrumented) {
+                listener.onPhaseCompleted(ClusteringListener.Phase.UPDATE, System.nanoTime() - start);
+                listener.onIteration(iteration, calculateSse(samples, flatCentroids, assignments));
+            }
+
+        } while (changing && !token.isCancelled());
+
+        FlightRecorder.commitKMeans(event, n, dimensions, k, iteration);
+
+        return new ClusteringResult<>(toPartition(flatCentroids, counts, assignments, dimensions), !changing,
+                iteration);
+
+    }
+
+    /** Returns the sum of the squared distances of the rows to the centroids
+     * of their clusters, in one more pass over the matrix. Only computed for
+     * instrumented runs.
+     */
+    static double calculateSse(final SampleMatrix samples, final double[] centroids, final int[] assignments) {
+
+        final int dimensions = samples.getDimensions();
+        final double[] x = new double[dimensions];
+        double sse = 0;
+
+        for (int i = 0; i < samples.size(); ++i) {
+            samples.copyRow(i, x, 0);
+            final int offset = assignments[i] * dimensions;
+            for (int l = 0; l < dimensions; ++l) {
+                final double difference = x[l] - centroids[offset + l];
+                sse += difference * difference;
+            }
+        }
+
+        return sse;
+
+    }
+
+    private static double calculateSse(final SparseSampleMatrix samples, final double[] centroids,
+                                       final int[] assignments) {
+
+        final int dimensions = samples.getDimensions();
+        final double[] squaredNorms = new double[centroids.length / dimensions];
+        double sse = 0;
+
+        for (int l = 0; l < centroids.length; ++l) {
+            squaredNorms[l / dimensions] += centroids[l] * centroids[l];
+        }
+
+        for (int i = 0; i < samples.size(); ++i) {
+            final int j = assignments[i];
+            sse += Math.max(0, samples.getSquaredNorm(i) + squaredNorms[j]
+                    - 2 * samples.dot(i, centroids, j * dimensions));
+        }
+
+        return sse;
+
+    }
+
+    static double calculateSse(final List<Cluster> clusters, final List<Sample> centroids) {
+
+        double sse = 0;
+        int j = 0;
+
+        for (final Cluster cluster : clusters) {
+            if (!cluster.isEmpty()) {
+                final Sample centroid = centroids.get(j++);
+                for (final Sample sample : cluster.getSamples()) {
+                    sse += Math.pow(sample.distance(centroid), 2);
+                }
+            }
+        }
+
+        return sse;
+
+    }
+
+    static List<Sample> chooseCentroids(final SampleMatrix samples, final int k, final Random random) {
+
+        final List<Sample> centroids = new ArrayList<>();
+        final Set<Integer> chosen = new HashSet<>();
+
+        while (chosen.size() < Math.min(k, samples.size())) {
+            final int row = random.nextInt(samples.size());
+            if (chosen.add(row)) {
+                centroids.add(samples.getSample(row));
+            }
+        }
+
+        return centroids;
+
+    }
+
+    static double[] flatten(final List<Sample> centroids, final int dimensions) {
+
+        final double[] flat = new double[centroids.size() * dimensions];
+
+        for (int j = 0; j < centroids.size(); ++j) {
+            if (centroids.get(j).getX().length != dimensions) {
+                throw new IllegalArgumentException();
+            }
+            System.arraycopy(centroids.get(j).getX(), 0, flat, j * dimensions, dimensions);
+        }
+
+        return flat;
+
+    }
+
+    static int closestCentroid(final double[] x, final double[] centroids, final int k, final int dimensions) {
+
+        int closest = 0;
+        double minimum = Double.POSITIVE_INFINITY;
+
+        for (int j = 0; j < k; ++j) {
+
+            final int offset = j * dimensions;
+            double sum = 0;
+
+            for (int l = 0; l < dimensions && sum < minimum; ++l) {
+                final double difference = x[l] - centroids[offset + l];
+                sum += difference * difference;
+            }
+
+            if (sum < minimum) {
+                minimum = sum;
+                closest = j;
+            }
+
+        }
+
+        return closest;
+
+    }
+
+    static Partition toPartition(final double[] centroids, final int[] counts, final int[] assignments,
+                                 final int dimensions) {
+
+        final int[] remapped = new int[counts.length];
+        final List<Sample> nonEmpty = new ArrayList<>();
+
+        for (int j = 0; j < counts.length; ++j) {
+            if (counts[j] > 0) {
+                remapped[j] = nonEmpty.size();
+                final double[] x = new double[dimensions];
+                System.arraycopy(centroids, j * dimensions, x, 0, dimensions);
+                nonEmpty.add(new Sample(x));
+            }
+        }
+
+        for (int i = 0; i < assignments.length; ++i) {
+            assignments[i] = remapped[assignments[i]];
+        }
+
+        return new Partition(nonEmpty, assignments);
 
-        return clusters;
     }
 
     static List<Sample> chooseCentroids(final List<Sample> samples, final int k, final Random random) {
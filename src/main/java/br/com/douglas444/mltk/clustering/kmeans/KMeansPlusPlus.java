@@ -1,26 +1,268 @@
 package br.com.douglas444.mltk.clustering.kmeans;
 
+import br.com.douglas444.mltk.clustering.CancellationToken;
+import br.com.douglas444.mltk.clustering.ClusteringListener;
+import br.com.douglas444.mltk.clustering.ClusteringResult;
 import br.com.douglas444.mltk.datastructure.Cluster;
+import br.com.douglas444.mltk.datastructure.PairwiseDistances;
+import br.com.douglas444.mltk.datastructure.Partition;
 import br.com.douglas444.mltk.datastructure.Sample;
+import br.com.douglas444.mltk.datastructure.SampleMatrix;
+import br.com.douglas444.mltk.datastructure.SparseSampleMatrix;
+import br.com.douglas444.mltk.util.FlightRecorder;
 
 import java.util.*;
 
 public final class KMeansPlusPlus {
 
     public static List<Cluster> execute(List<Sample> samples, final int k, final Random random) {
+        return execute(samples, k, random, ClusteringListener.NONE);
+    }
+
+    /** Same as {@link #execute(List, int, Random)}, reporting the seeding and
+     * every k-means iteration to the listener passed as argument.
+     */
+    public static List<Cluster> execute(List<Sample> samples, final int k, final Random random,
+                                        final ClusteringListener listener) {
+        return execute(samples, k, random, CancellationToken.NONE, listener).getSolution();
+    }
+
+    /** Anytime version of {@link #execute(List, int, Random, ClusteringListener)},
+     * see {@link KMeans#execute(List, List, CancellationToken, ClusteringListener)}.
+     * The token is also checked before each D² sampling round of the
+     * seeding; once it is cancelled, the remaining centroids are drawn
+     * uniformly at random.
+     */
+    public static ClusteringResult<List<Cluster>> execute(List<Sample> samples, final int k, final Random random,
+                                                          final CancellationToken token,
+                                                          final ClusteringListener listener) {
+
+        samples = new ArrayList<>(samples);
+
+        final Object event = FlightRecorder.beginSeeding();
+        final long start = listener != ClusteringListener.NONE ? System.nanoTime() : 0;
+        final List<Sample> centroids = chooseCentroids(samples, k, random, token);
+        FlightRecorder.commitSeeding(event, "k-means++", samples.size(), k);
+        if (listener != ClusteringListener.NONE) {
+            listener.onPhaseCompleted(ClusteringListener.Phase.SEEDING, System.nanoTime() - start);
+            listener.onDistanceComputations((long) samples.size() * k * (k - 1) / 2);
+        }
+
+        return KMeans.execute(samples, centroids, token, listener);
+
+    }
+
+    /** Same as {@link #execute(List, int, Random)}, seeding by D² sampling
+     * over the distances passed as argument, the distance between the samples
+     * i and j of the list being the distance between i and j, so the seeding
+     * only reads the distances of each sample to each new centroid. Fewer than
+     * k centroids are seeded if every sample is already a centroid.
+     */
+    public static List<Cluster> execute(List<Sample> samples, final PairwiseDistances distances, final int k,
+                                        final Random random) {
+
+        if (distances.size() != samples.size()) {
+            throw new IllegalArgumentException();
+        }
 
         samples = new ArrayList<>(samples);
-        final List<Sample> centroids = chooseCentroids(samples, k, random);
+
+        final Object event = FlightRecorder.beginSeeding();
+        final List<Sample> centroids = new ArrayList<>();
+        for (final int row : chooseCentroids(distances, k, random)) {
+            centroids.add(samples.get(row));
+        }
+        FlightRecorder.commitSeeding(event, "k-means++", samples.size(), centroids.size());
+
         return KMeans.execute(samples, centroids);
 
     }
 
-    private static List<Sample> chooseCentroids(final List<Sample> samples, final int k, final Random random) {
+    public static Partition execute(final SampleMatrix samples, final int k, final Random random) {
+        return execute(samples, k, random, ClusteringListener.NONE);
+    }
+
+    public static Partition execute(final SampleMatrix samples, final int k, final Random random,
+                                    final ClusteringListener listener) {
+        return execute(samples, k, random, CancellationToken.NONE, listener).getSolution();
+    }
+
+    /** Anytime version of {@link #execute(SampleMatrix, int, Random, ClusteringListener)},
+     * see {@link KMeans#execute(SampleMatrix, List, CancellationToken, ClusteringListener)}.
+     * The token is also checked before each D² sampling round of the
+     * seeding; once it is cancelled, the remaining centroids are drawn
+     * uniformly at random.
+     */
+    public static ClusteringResult<Partition> execute(final SampleMatrix samples, final int k, final Random random,
+                                                      final CancellationToken token,
+                                                      final ClusteringListener listener) {
+
+        final Object event = FlightRecorder.beginSeeding();
+        final long start = listener != ClusteringListener.NONE ? System.nanoTime() : 0;
+        final List<Sample> centroids = chooseCentroids(samples, k, random, token, listener);
+        FlightRecorder.commitSeeding(event, "k-means++", samples.size(), k);
+        if (listener != ClusteringListener.NONE) {
+            listener.onPhaseCompleted(ClusteringListener.Phase.SEEDING, System.nanoTime() - start);
+        }
+
+        return KMeans.execute(samples, centroids, token, listener);
+
+    }
+
+    /** Seeds k centroids by D² sampling over the rows of the matrix passed as
+     * argument, keeping only the squared distance of each row to its closest
+     * centroid so far, instead of a map from sample to probability. For a
+     * {@link SparseSampleMatrix} the last centroid is scattered into a dense
+     * array and each distance is computed from the cached squared norms and a
+     * dot product over the non-zero values of the row.
+     */
+    private static List<Sample> chooseCentroids(final SampleMatrix samples, final int k, final Random random,
+                                                final CancellationToken token,
+                                                final ClusteringListener listener) {
+
+        if (samples.size() == 0 || k < 1) {
+            throw new IllegalArgumentException();
+        }
+
+        final int n = samples.size();
+        final int dimensions = samples.getDimensions();
+        final double[] minimumDistances = new double[n];
+        final double[] x = new double[dimensions];
+        final List<Sample> centroids = new ArrayList<>();
+
+        final SparseSampleMatrix sparse = samples instanceof SparseSampleMatrix
+                ? (SparseSampleMatrix) samples
+                : null;
+
+        Arrays.fill(minimumDistances, Double.POSITIVE_INFINITY);
+        Sample centroid = samples.getSample(random.nextInt(n));
+
+        while (true) {
+
+            centroids.add(centroid);
+
+            if (centroids.size() == k) {
+                return centroids;
+            }
+
+            if (token.isCancelled()) {
+                while (centroids.size() < k) {
+                    centroids.add(samples.getSample(random.nextInt(n)));
+                }
+                return centroids;
+            }
+
+            double sum = 0;
+
+            double centroidSquaredNorm = 0;
+            for (int l = 0; l < dimensions; ++l) {
+                centroidSquaredNorm += centroid.getX()[l] * centroid.getX()[l];
+            }
+
+            for (int i = 0; i < n; ++i) {
+                double distance = 0;
+                if (sparse != null) {
+                    distance = Math.max(0, sparse.getSquaredNorm(i) + centroidSquaredNorm
+                            - 2 * sparse.dot(i, centroid.getX(), 0));
+                } else {
+                    samples.copyRow(i, x, 0);
+                    for (int l = 0; l < dimensions; ++l) {
+                        final double difference = x[l] - centroid.getX()[l];
+                        distance += difference * difference;
+                    }
+                }
+                minimumDistances[i] = Math.min(minimumDistances[i], distance);
+                sum += minimumDistances[i];
+            }
+
+            if (listener != ClusteringListener.NONE) {
+                listener.onDistanceComputations(n);
+            }
+
+            if (sum == 0) {
+                return centroids;
+            }
+
+            final double r = random.nextDouble() * sum;
+            double cumulative = 0;
+            int selected = n - 1;
+
+            for (int i = 0; i < n; ++i) {
+                cumulative += minimumDistances[i];
+                if (r < cumulative) {
+                    selected = i;
+                    break;
+                }
+            }
+
+            centroid = samples.getSample(selected);
+
+        }
+
+    }
+
+    /** Seeds up to k centroids by D² sampling over the distances passed as
+     * argument, keeping the squared distance of each sample to its closest
+     * centroid so far.
+     *
+     * @return Returns the index of each centroid.
+     */
+    private static int[] chooseCentroids(final PairwiseDistances distances, final int k, final Random random) {
+
+        if (distances.size() == 0 || k < 1) {
+            throw new IllegalArgumentException();
+        }
+
+        final int n = distances.size();
+        final double[] minimumDistances = new double[n];
+        final int[] centroids = new int[k];
+        int count = 0;
+
+        Arrays.fill(minimumDistances, Double.POSITIVE_INFINITY);
+        centroids[count++] = random.nextInt(n);
+
+        while (count < k) {
+
+            double sum = 0;
+            for (int i = 0; i < n; ++i) {
+                final double distance = distances.distance(i, centroids[count - 1]);
+                minimumDistances[i] = Math.min(minimumDistances[i], distance * distance);
+                sum += minimumDistances[i];
+            }
+
+            if (sum == 0) {
+                break;
+            }
+
+            final double r = random.nextDouble() * sum;
+            double cumulative = 0;
+            int selected = n - 1;
+
+            for (int i = 0; i < n; ++i) {
+                cumulative += minimumDistances[i];
+                if (r < cumulative) {
+                    selected = i;
+                    break;
+                }
+            }
+
+            centroids[count++] = selected;
+
+        }
+
+        return Arrays.copyOf(centroids, count);
+
+    }
+
+    private static List<Sample> chooseCentroids(final List<Sample> samples, final int k, final Random random,
+                                                final CancellationToken token) {
 
         final List<Sample> centroids = new ArrayList<>();
 
         for (int i = 0; i < k; ++i) {
-            Sample centroid = selectNextCentroid(samples, centroids, random);
+            final Sample centroid = i > 0 && token.isCancelled()
+                    ? samples.get(random.nextInt(samples.size()))
+                    : selectNextCentroid(samples, centroids, random);
             centroids.add(centroid);
         }
 
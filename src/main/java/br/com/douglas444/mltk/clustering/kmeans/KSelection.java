@@ -0,0 +1,283 @@
+package br.com.douglas444.mltk.clustering.kmeans;
+
+import br.com.douglas444.mltk.clustering.ClusteringQuality;
+import br.com.douglas444.mltk.datastructure.Partition;
+import br.com.douglas444.mltk.datastructure.Sample;
+import br.com.douglas444.mltk.datastructure.SampleMatrix;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/** Chooses the number of clusters of the rows of a matrix by sweeping k
+ * upwards from a minimum. Only the minimum is seeded by k-means++; every
+ * other k is warm-started from the solution of a smaller k by splitting its
+ * clusters with the largest sums of squared errors, so each run starts close
+ * to convergence.
+ *
+ * The sweep advances in waves of as many consecutive values of k as the
+ * parallelism: all of them are split from the last solution of the previous
+ * wave and run concurrently, reading the matrix from several threads. It
+ * stops once the score has not improved for a number of consecutive k, the
+ * patience. The result only depends on the seed of the random generator
+ * passed as argument, not on the scheduling of the threads, but it does
+ * depend on the parallelism, which decides where each k is split from: the
+ * wider the wave, the more clusters are split at once from an older solution,
+ * and the more likely a run is to end in a worse local optimum than one split
+ * from k − 1. A parallelism of 1 chains every k from the previous one.
+ */
+public class KSelection {
+
+    public enum Criterion {
+        /** A k improves on k − 1 if it lowers the sum of squared errors by at
+         * least the minimum gain, as a fraction. */
+        ELBOW,
+        /** Higher simplified silhouette, estimated on a sample of rows. */
+        SILHOUETTE,
+        /** Higher Bayesian information criterion. */
+        BIC
+    }
+
+    private final Criterion criterion;
+    private int patience;
+    private int parallelism;
+    private int silhouetteSampleSize;
+    private double minimumGain;
+
+    public KSelection(final Criterion criterion) {
+        this.criterion = criterion;
+        this.patience = 2;
+        this.parallelism = ForkJoinPool.getCommonPoolParallelism();
+        this.silhouetteSampleSize = 1000;
+        this.minimumGain = 0.1;
+    }
+
+    public KSelectionResult execute(final SampleMatrix samples, final int minimumK, final int maximumK,
+                                    final Random random) {
+
+        if (minimumK < 1 || maximumK < minimumK || samples.size() <= maximumK) {
+            throw new IllegalArgumentException();
+        }
+
+        if (this.criterion == Criterion.SILHOUETTE && minimumK < 2) {
+            throw new IllegalArgumentException("The silhouette needs at least two clusters");
+        }
+
+        final SortedMap<Integer, Double> scores = new TreeMap<>();
+
+        Partition current = KMeansPlusPlus.execute(samples, minimumK, random);
+        ClusteringQuality currentQuality = ClusteringQuality.of(current, samples);
+        double previous = this.evaluate(currentQuality, samples, random);
+        this.record(scores, current, previous);
+
+        int k = minimumK;
+        Partition best = current;
+        double bestScore = previous;
+        int nonImproving = 0;
+
+        while (k < maximumK && nonImproving < this.patience) {
+
+            final int width = Math.min(this.parallelism, maximumK - k);
+            final ClusteringQuality baseQuality = currentQuality;
+            final long[] seeds = new long[width];
+            final Partition[] partitions = new Partition[width];
+            final ClusteringQuality[] qualities = new ClusteringQuality[width];
+            final double[] values = new double[width];
+
+            for (int i = 0; i < width; ++i) {
+                seeds[i] = random.nextLong();
+            }
+
+            IntStream.range(0, width).parallel().forEach(i -> {
+                final Random taskRandom = new Random(seeds[i]);
+                partitions[i] = KMeans.execute(samples, split(baseQuality, i + 1, taskRandom));
+                qualities[i] = ClusteringQuality.of(partitions[i], samples);
+                values[i] = this.evaluate(qualities[i], samples, taskRandom);
+            });
+
+            for (int i = 0; i < width && nonImproving < this.patience; ++i) {
+
+                ++k;
+                this.record(scores, partitions[i], values[i]);
+                current = partitions[i];
+                currentQuality = qualities[i];
+
+                final boolean improved = this.criterion == Criterion.ELBOW
+                        ? previous - values[i] >= this.minimumGain * previous
+                        : values[i] > bestScore;
+
+                if (improved) {
+                    best = partitions[i];
+                    bestScore = values[i];
+                    nonImproving = 0;
+                } else {
+                    ++nonImproving;
+                }
+
+                previous = values[i];
+
+            }
+
+        }
+
+        return new KSelectionResult(best, scores, k < maximumK);
+
+    }
+
+    /** Records the score of a run under the number of clusters it ended with,
+     * which is lower than the k it was run with when some clusters ended up
+     * empty, keeping the better score when several runs end with as many.
+     */
+    private void record(final SortedMap<Integer, Double> scores, final Partition partition, final double value) {
+
+        final boolean lowerIsBetter = this.criterion == Criterion.ELBOW;
+        scores.merge(partition.getCentroids().size(), value,
+                (a, b) -> lowerIsBetter ? Math.min(a, b) : Math.max(a, b));
+
+    }
+
+    /** Returns the score of a clustering, the sum of squared errors for
+     * {@link Criterion#ELBOW}, where lower is better, and higher is better
+     * otherwise.
+     */
+    private double evaluate(final ClusteringQuality quality, final SampleMatrix samples, final Random random) {
+
+        switch (this.criterion) {
+            case ELBOW:
+                return quality.calculateSse();
+            case SILHOUETTE:
+                return quality.size() < 2
+                        ? Double.NEGATIVE_INFINITY
+                        : quality.calculateSimplifiedSilhouette(samples, this.silhouetteSampleSize, random);
+            default:
+                return quality.calculateBic();
+        }
+
+    }
+
+    /** Returns the centroids of the clustering passed as argument with
+     * additional clusters split off, always splitting the cluster with the
+     * largest expected sum of squared errors. A cluster of radius r is
+     * replaced by two centroids at c ± √(2/π)·(r/√d)·u, along a random unit
+     * direction u, where the halves of a spherical Gaussian have their means,
+     * and each half is expected to keep (1 − 2/π) / 2 of its parent's error.
+     */
+    static List<Sample> split(final ClusteringQuality quality, final int additional, final Random random) {
+
+        final int dimensions = quality.getCentroid(0).length;
+        final double halfError = (1 - 2 / Math.PI) / 2;
+        final PriorityQueue<double[]> queue = new PriorityQueue<>((a, b) -> Double.compare(b[0], a[0]));
+
+        for (int j = 0; j < quality.size(); ++j) {
+            queue.add(entry(quality.calculateSse(j), quality.calculateRadius(j), quality.getCentroid(j)));
+        }
+
+        for (int s = 0; s < additional; ++s) {
+
+            final double[] parent = queue.poll();
+            final double[] direction = new double[dimensions];
+            double norm = 0;
+
+            for (int l = 0; l < dimensions; ++l) {
+                direction[l] = random.nextGaussian();
+                norm += direction[l] * direction[l];
+            }
+
+            final double offset = Math.sqrt(2 / Math.PI) * parent[1] / Math.sqrt(dimensions) / Math.sqrt(norm);
+            final double[] first = new double[dimensions];
+            final double[] second = new double[dimensions];
+
+            for (int l = 0; l < dimensions; ++l) {
+                first[l] = parent[2 + l] + offset * direction[l];
+                second[l] = parent[2 + l] - offset * direction[l];
+            }
+
+            final double radius = parent[1] * Math.sqrt(1 - 2 / Math.PI);
+            queue.add(entry(parent[0] * halfError, radius, first));
+            queue.add(entry(parent[0] * halfError, radius, second));
+
+        }
+
+        final List<Sample> centroids = new ArrayList<>();
+        for (final double[] entry : queue) {
+            final double[] x = new double[dimensions];
+            System.arraycopy(entry, 2, x, 0, dimensions);
+            centroids.add(new Sample(x));
+        }
+
+        return centroids;
+
+    }
+
+    private static double[] entry(final double sse, final double radius, final double[] centroid) {
+
+        final double[] entry = new double[centroid.length + 2];
+        entry[0] = sse;
+        entry[1] = radius;
+        System.arraycopy(centroid, 0, entry, 2, centroid.length);
+        return entry;
+
+    }
+
+    /** Sets the number of consecutive values of k without improvement after
+     * which the sweep stops, 2 by default.
+     */
+    public KSelection setPatience(final int patience) {
+
+        if (patience < 1) {
+            throw new IllegalArgumentException();
+        }
+
+        this.patience = patience;
+        return this;
+
+    }
+
+    /** Sets the number of values of k run concurrently, the parallelism of the
+     * common fork-join pool by default.
+     */
+    public KSelection setParallelism(final int parallelism) {
+
+        if (parallelism < 1) {
+            throw new IllegalArgumentException();
+        }
+
+        this.parallelism = parallelism;
+        return this;
+
+    }
+
+    /** Sets the number of rows the simplified silhouette is estimated on,
+     * 1000 by default.
+     */
+    public KSelection setSilhouetteSampleSize(final int silhouetteSampleSize) {
+
+        if (silhouetteSampleSize < 1) {
+            throw new IllegalArgumentException();
+        }
+
+        this.silhouetteSampleSize = silhouetteSampleSize;
+        return this;
+
+    }
+
+    /** Sets the fraction by which a k must lower the sum of squared errors of
+     * k − 1 to improve on it, for {@link Criterion#ELBOW}, 0.1 by default.
+     */
+    public KSelection setMinimumGain(final double minimumGain) {
+
+        if (minimumGain < 0 || minimumGain >= 1) {
+            throw new IllegalArgumentException();
+        }
+
+        this.minimumGain = minimumGain;
+        return this;
+
+    }
+
+}
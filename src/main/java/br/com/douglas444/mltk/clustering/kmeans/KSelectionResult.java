@@ -0,0 +1,52 @@
+package br.com.douglas444.mltk.clustering.kmeans;
+
+import br.com.douglas444.mltk.datastructure.Partition;
+
+import java.util.Collections;
+import java.util.SortedMap;
+
+/** Outcome of a {@link KSelection} sweep: the chosen number of clusters, its
+ * partition and the score of every k evaluated.
+ */
+public class KSelectionResult {
+
+    private final Partition partition;
+    private final SortedMap<Integer, Double> scores;
+    private final boolean stoppedEarly;
+
+    KSelectionResult(final Partition partition, final SortedMap<Integer, Double> scores,
+                     final boolean stoppedEarly) {
+        this.partition = partition;
+        this.scores = Collections.unmodifiableSortedMap(scores);
+        this.stoppedEarly = stoppedEarly;
+    }
+
+    /** Returns the chosen number of clusters, those of the partition. It may
+     * be lower than the k the partition was run with, if some of its clusters
+     * ended up empty.
+     */
+    public int getK() {
+        return this.partition.getCentroids().size();
+    }
+
+    public Partition getPartition() {
+        return partition;
+    }
+
+    /** Returns the score of the runs evaluated, the sum of squared errors for
+     * {@link KSelection.Criterion#ELBOW}, keyed by the number of clusters each
+     * run ended with, as {@link #getK()}. When several runs ended with the
+     * same number, the best of their scores is kept.
+     */
+    public SortedMap<Integer, Double> getScores() {
+        return scores;
+    }
+
+    /** Returns true if the sweep stopped before the maximum k because the
+     * score stopped improving.
+     */
+    public boolean isStoppedEarly() {
+        return stoppedEarly;
+    }
+
+}
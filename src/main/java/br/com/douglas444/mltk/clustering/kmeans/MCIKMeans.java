@@ -1,7 +1,11 @@
 package br.com.douglas444.mltk.clustering.kmeans;
 
+import br.com.douglas444.mltk.clustering.CancellationToken;
+import br.com.douglas444.mltk.clustering.ClusteringListener;
+import br.com.douglas444.mltk.clustering.ClusteringResult;
 import br.com.douglas444.mltk.datastructure.ImpurityBasedCluster;
 import br.com.douglas444.mltk.datastructure.Sample;
+import br.com.douglas444.mltk.util.FlightRecorder;
 
 import java.util.*;
 
@@ -9,6 +13,31 @@ public final class MCIKMeans {
 
     public static List<ImpurityBasedCluster> execute(List<Sample> labeledSamples, List<Sample> unlabeledSamples,
                                                      final int k, final Random random) {
+        return execute(labeledSamples, unlabeledSamples, k, random, ClusteringListener.NONE);
+    }
+
+    /** Same as {@link #execute(List, List, int, Random)}, reporting the
+     * seeding, every pass of the iterative conditional mode loop and every
+     * centroid update to the listener passed as argument.
+     */
+    public static List<ImpurityBasedCluster> execute(List<Sample> labeledSamples, List<Sample> unlabeledSamples,
+                                                     final int k, final Random random,
+                                                     final ClusteringListener listener) {
+        return execute(labeledSamples, unlabeledSamples, k, random, CancellationToken.NONE, listener).getSolution();
+    }
+
+    /** Anytime version of {@link #execute(List, List, int, Random, ClusteringListener)}.
+     * The token passed as argument is checked after each pass of the iterative
+     * conditional mode loop, where every sample is assigned, and after each
+     * centroid update. Once it is cancelled, the centroids are updated one
+     * last time and the clusters are returned, flagged as not converged. At
+     * least one pass is run.
+     */
+    public static ClusteringResult<List<ImpurityBasedCluster>> execute(List<Sample> labeledSamples,
+                                                                       List<Sample> unlabeledSamples,
+                                                                       final int k, final Random random,
+                                                                       final CancellationToken token,
+                                                                       final ClusteringListener listener) {
 
         if (k < 2) {
             throw new IllegalArgumentException();
@@ -28,6 +57,8 @@ public final class MCIKMeans {
             samplesByLabel.get(labeledSample.getY()).add(labeledSample);
         });
 
+        final Object event = FlightRecorder.beginSeeding();
+        final long start = listener != ClusteringListener.NONE ? System.nanoTime() : 0;
         final List<Sample> centroids = new ArrayList<>();
 
 
@@ -73,13 +104,22 @@ public final class MCIKMeans {
 
         }
 
-        return execute(labeledSamples, unlabeledSamples, centroids, random);
+        FlightRecorder.commitSeeding(event, "farthest-first", labeledSamples.size() + unlabeledSamples.size(),
+                centroids.size());
+        if (listener != ClusteringListener.NONE) {
+            listener.onPhaseCompleted(ClusteringListener.Phase.SEEDING, System.nanoTime() - start);
+        }
+
+        return execute(labeledSamples, unlabeledSamples, centroids, random, token, listener);
 
     }
 
-    private static List<ImpurityBasedCluster> execute(final List<Sample> labeledSamples,
-                                                      final List<Sample> unlabeledSamples,
-                                                      final List<Sample> centroids, final Random random) {
+    private static ClusteringResult<List<ImpurityBasedCluster>> execute(final List<Sample> labeledSamples,
+                                                                        final List<Sample> unlabeledSamples,
+                                                                        final List<Sample> centroids,
+                                                                        final Random random,
+                                                                        final CancellationToken token,
+                                                                        final ClusteringListener listener) {
 
         final List<ImpurityBasedCluster> clusters = new ArrayList<>();
         final HashMap<Integer, ImpurityBasedCluster> clusterById = new HashMap<>();
@@ -89,22 +129,51 @@ public final class MCIKMeans {
             clusterById.put(i, clusters.get(i));
         }
 
+        final Object event = FlightRecorder.beginKMeans();
+        final boolean instrumented = listener != ClusteringListener.NONE;
+        int iteration = 0;
         boolean changing;
 
         do {
-            changing = iterativeConditionalMode(labeledSamples, unlabeledSamples, clusters, clusterById, random);
+
+            ++iteration;
+            long start = instrumented ? System.nanoTime() : 0;
+
+            changing = iterativeConditionalMode(labeledSamples, unlabeledSamples, clusters, clusterById, random,
+                    token, listener);
+
+            if (instrumented) {
+                listener.onPhaseCompleted(ClusteringListener.Phase.ASSIGNMENT, System.nanoTime() - start);
+                start = System.nanoTime();
+            }
+
             clusters.stream().filter(cluster -> cluster.size() > 0).forEach(ImpurityBasedCluster::updateCentroid);
-        } while (changing);
+
+            if (instrumented) {
+                listener.onPhaseCompleted(ClusteringListener.Phase.UPDATE, System.nanoTime() - start);
+                listener.onIteration(iteration, calculateSse(clusters));
+            }
+
+        } while (changing && !token.isCancelled());
+
+        FlightRecorder.commitKMeans(event, labeledSamples.size() + unlabeledSamples.size(),
+                centroids.get(0).getX().length, centroids.size(), iteration);
 
         clusters.removeIf(cluster -> cluster.size() == 0);
 
         labeledSamples.forEach(sample -> sample.setClusterId(null));
         unlabeledSamples.forEach(sample -> sample.setClusterId(null));
 
-        return clusters;
+        return new ClusteringResult<>(clusters, !changing, iteration);
 
     }
 
+    /** Farthest-first traversal: the first sample is the first centroid, and
+     * each next one is the sample farthest from its closest centroid so far.
+     * The distance of each sample to its closest centroid is kept and only
+     * compared against the newest centroid, so every sample-to-centroid
+     * distance is computed once.
+     */
     private static List<Sample> chooseCentroids(final List<Sample> samples, final int k) {
 
         if (samples.size() <= k) {
@@ -112,42 +181,53 @@ public final class MCIKMeans {
         }
 
         final List<Sample> centroids = new ArrayList<>();
-        final List<Sample> candidates = new ArrayList<>(samples);
+        final double[] minimumDistances = new double[samples.size()];
+        final boolean[] chosen = new boolean[samples.size()];
+        int farthest = 0;
+
+        Arrays.fill(minimumDistances, Double.POSITIVE_INFINITY);
 
         for (int i = 0; i < k; ++i) {
-            Sample centroid = farthestFirstTraversalHeuristic(candidates, centroids);
-            candidates.remove(centroid);
+
+            final Sample centroid = samples.get(farthest);
+            chosen[farthest] = true;
             centroids.add(centroid);
 
+            farthest = -1;
+            for (int j = 0; j < samples.size(); ++j) {
+                if (!chosen[j]) {
+                    minimumDistances[j] = Math.min(minimumDistances[j], samples.get(j).distance(centroid));
+                    if (farthest == -1 || minimumDistances[j] > minimumDistances[farthest]) {
+                        farthest = j;
+                    }
+                }
+            }
+
         }
 
         return centroids;
 
     }
 
-    private static Sample farthestFirstTraversalHeuristic(final List<Sample> samples, final List<Sample> centroids) {
-
-        assert !samples.isEmpty();
+    private static double calculateSse(final List<ImpurityBasedCluster> clusters) {
 
-        Sample farthest = samples.get(0);
+        double sse = 0;
 
-        final Comparator<Sample> comparator = Comparator
-                .comparing((sample) -> KMeans.distanceToTheClosestCentroid(sample, centroids));
-
-        for (int i = 1; i < samples.size(); i++) {
-            final Sample sample = samples.get(i);
-            if (comparator.compare(sample, farthest) > 0) {
-                farthest = sample;
+        for (final ImpurityBasedCluster cluster : clusters) {
+            for (final Sample sample : cluster.getSamples()) {
+                sse += Math.pow(sample.distance(cluster.getCentroid()), 2);
             }
         }
 
-        return farthest;
+        return sse;
+
     }
 
     private static boolean iterativeConditionalMode(List<Sample> labeledSamples, List<Sample> unlabeledSamples,
                                                     final List<ImpurityBasedCluster> clusters,
                                                     final HashMap<Integer, ImpurityBasedCluster> clusterById,
-                                                    final Random random) {
+                                                    final Random random, final CancellationToken token,
+                                                    final ClusteringListener listener) {
 
         assert !labeledSamples.isEmpty();
 
@@ -156,15 +236,18 @@ public final class MCIKMeans {
 
         boolean changed;
         boolean noChanges = true;
+        int pass = 0;
 
         do {
 
             Collections.shuffle(labeledSamples, random);
             Collections.shuffle(unlabeledSamples, random);
 
+            final Object event = FlightRecorder.beginIcmPass();
             int numberOfSamples = labeledSamples.size() + unlabeledSamples.size();
 
             changed = false;
+            int reassigned = 0;
 
             for (int i = 0; i < numberOfSamples; ++i) {
 
@@ -223,12 +306,20 @@ public final class MCIKMeans {
 
                     changed = true;
                     noChanges = false;
+                    ++reassigned;
 
                 }
 
             }
 
-        } while (changed);
+            FlightRecorder.commitIcmPass(event, ++pass, numberOfSamples, reassigned);
+
+            if (listener != ClusteringListener.NONE) {
+                listener.onIcmPass(pass, reassigned);
+                listener.onDistanceComputations((long) numberOfSamples * clusters.size());
+            }
+
+        } while (changed && !token.isCancelled());
 
         return !noChanges;
 
@@ -0,0 +1,404 @@
+package br.com.douglas444.mltk.clustering.kmedoids;
+
+import br.com.douglas444.mltk.datastructure.Cluster;
+import br.com.douglas444.mltk.datastructure.DistanceMatrix;
+import br.com.douglas444.mltk.datastructure.PairwiseDistances;
+import br.com.douglas444.mltk.datastructure.Sample;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+/** k-medoids clustering, whose centers are samples of the data set rather than
+ * means, so that a few outliers cannot drag a center away from its cluster.
+ * The medoids are improved by FasterPAM (Schubert and Rousseeuw, 2021): for
+ * each non-medoid candidate, the change of the total deviation of swapping it
+ * with every medoid at once is computed in a single pass over the samples,
+ * from the distances of each sample to its closest and second closest
+ * medoids and the loss of removing each medoid, and the best swap is applied
+ * right away if it lowers the total deviation. Evaluating a candidate costs
+ * O(n + k) distance lookups instead of the O(n·k) of PAM, and that pass is
+ * split across threads, each one summing its share of the changes in an array
+ * of its own before they are added up.
+ *
+ * Every distance is read from a {@link PairwiseDistances}, which for
+ * {@link #execute(List, int, Random)} is a {@link DistanceMatrix} computed
+ * up front in parallel. {@link #executeClara(List, int, int, int, Random)}
+ * only computes the distances between a few small random subsets of the
+ * samples, for data sets too large for n² distances.
+ *
+ * The clusters are returned in the order of their medoids, and the medoid of
+ * each cluster is its first sample.
+ */
+public final class KMedoids {
+
+    private static final double TOLERANCE = 1e-12;
+
+    public static List<Cluster> execute(final List<Sample> samples, final int k, final Random random) {
+        return execute(samples, DistanceMatrix.of(samples), k, random);
+    }
+
+    /** Clusters the samples passed as argument with the distances between
+     * them already computed, the distance between the samples i and j of the
+     * list being the distance between i and j.
+     */
+    public static List<Cluster> execute(final List<Sample> samples, final PairwiseDistances distances, final int k,
+                                        final Random random) {
+
+        if (distances.size() != samples.size()) {
+            throw new IllegalArgumentException();
+        }
+
+        final int[] medoids = fasterPam(distances, k, random);
+        final int[] nearest = new int[samples.size()];
+
+        IntStream.range(0, nearest.length).parallel().forEach(o -> {
+            int closest = 0;
+            for (int j = 1; j < medoids.length; ++j) {
+                if (distances.distance(o, medoids[j]) < distances.distance(o, medoids[closest])) {
+                    closest = j;
+                }
+            }
+            nearest[o] = closest;
+        });
+
+        return toClusters(samples, medoids, nearest);
+
+    }
+
+    public static List<Cluster> executeClara(final List<Sample> samples, final int k, final Random random) {
+        return executeClara(samples, k, 40 + 2 * k, 5, random);
+    }
+
+    /** CLARA: runs FasterPAM on several random subsets of the samples and
+     * keeps the medoids with the lowest total deviation over all of the
+     * samples. The subsets are clustered in parallel, each one with its own
+     * distance matrix of sampleSize² doubles, and the total deviations are
+     * computed in parallel, in O(n·k·d) each.
+     *
+     * @param sampleSize Number of samples of each subset, 40 + 2k by default.
+     * @param draws Number of subsets, 5 by default.
+     */
+    public static List<Cluster> executeClara(final List<Sample> samples, final int k, final int sampleSize,
+                                             final int draws, final Random random) {
+
+        if (k < 1 || sampleSize < k || draws < 1 || samples.size() < k) {
+            throw new IllegalArgumentException();
+        }
+
+        final int n = samples.size();
+        final int size = Math.min(n, sampleSize);
+        final long[] seeds = new long[draws];
+
+        for (int i = 0; i < draws; ++i) {
+            seeds[i] = random.nextLong();
+        }
+
+        final int[][] candidates = new int[draws][];
+        final double[] deviations = new double[draws];
+
+        IntStream.range(0, draws).parallel().forEach(draw -> {
+
+            final Random drawRandom = new Random(seeds[draw]);
+            final int[] rows = IntStream.range(0, n).toArray();
+
+            for (int i = 0; i < size; ++i) {
+                final int swap = i + drawRandom.nextInt(n - i);
+                final int row = rows[swap];
+                rows[swap] = rows[i];
+                rows[i] = row;
+            }
+
+            final List<Sample> subset = new ArrayList<>();
+            for (int i = 0; i < size; ++i) {
+                subset.add(samples.get(rows[i]));
+            }
+
+            final int[] medoids = fasterPam(DistanceMatrix.of(subset), k, drawRandom);
+            for (int j = 0; j < k; ++j) {
+                medoids[j] = rows[medoids[j]];
+            }
+
+            candidates[draw] = medoids;
+            deviations[draw] = IntStream.range(0, n).parallel()
+                    .mapToDouble(o -> distanceToTheClosestMedoid(samples, medoids, o))
+                    .sum();
+
+        });
+
+        int best = 0;
+        for (int draw = 1; draw < draws; ++draw) {
+            if (deviations[draw] < deviations[best]) {
+                best = draw;
+            }
+        }
+
+        final int[] medoids = candidates[best];
+        final int[] nearest = new int[n];
+
+        IntStream.range(0, n).parallel().forEach(o -> {
+            final Sample sample = samples.get(o);
+            int closest = 0;
+            double closestDistance = sample.distance(samples.get(medoids[0]));
+            for (int j = 1; j < medoids.length; ++j) {
+                final double distance = sample.distance(samples.get(medoids[j]));
+                if (distance < closestDistance) {
+                    closest = j;
+                    closestDistance = distance;
+                }
+            }
+            nearest[o] = closest;
+        });
+
+        return toClusters(samples, medoids, nearest);
+
+    }
+
+    /** Chooses k medoids by D² sampling over the distances and improves them
+     * with FasterPAM until no swap lowers the total deviation.
+     *
+     * @return Returns the index of each medoid.
+     */
+    static int[] fasterPam(final PairwiseDistances distances, final int k, final Random random) {
+
+        final int n = distances.size();
+
+        if (k < 1 || k > n) {
+            throw new IllegalArgumentException();
+        }
+
+        final int[] medoids = seed(distances, k, random);
+        final boolean[] isMedoid = new boolean[n];
+        for (final int medoid : medoids) {
+            isMedoid[medoid] = true;
+        }
+
+        if (k == n) {
+            return medoids;
+        }
+
+        if (k == 1) {
+            medoids[0] = IntStream.range(0, n).boxed()
+                    .min((a, b) -> Double.compare(totalDistance(distances, a), totalDistance(distances, b)))
+                    .orElseThrow(IllegalStateException::new);
+            return medoids;
+        }
+
+        final int[] nearest = new int[n];
+        final double[] nearestDistances = new double[n];
+        final double[] secondDistances = new double[n];
+        final double[] removalLoss = new double[k];
+        final double[] delta = new double[k];
+
+        updateNearest(distances, medoids, nearest, nearestDistances, secondDistances);
+        updateRemovalLoss(nearest, nearestDistances, secondDistances, removalLoss);
+
+        int candidate = random.nextInt(n);
+        int sinceLastSwap = 0;
+
+        while (sinceLastSwap < n) {
+
+            if (!isMedoid[candidate]) {
+
+                final int swapIn = candidate;
+                final double[] changes = IntStream.range(0, n).parallel().collect(() -> new double[k + 1],
+                        (partial, o) -> {
+
+                            final double distance = distances.distance(o, swapIn);
+
+                            if (distance < nearestDistances[o]) {
+                                partial[k] += distance - nearestDistances[o];
+                                partial[nearest[o]] += nearestDistances[o] - secondDistances[o];
+                            } else if (distance < secondDistances[o]) {
+                                partial[nearest[o]] += distance - secondDistances[o];
+                            }
+
+                        }, (left, right) -> {
+                            for (int j = 0; j <= k; ++j) {
+                                left[j] += right[j];
+                            }
+                        });
+
+                for (int j = 0; j < k; ++j) {
+                    delta[j] = removalLoss[j] + changes[j];
+                }
+
+                final double gain = changes[k];
+
+                int removed = 0;
+                for (int j = 1; j < k; ++j) {
+                    if (delta[j] < delta[removed]) {
+                        removed = j;
+                    }
+                }
+
+                if (delta[removed] + gain < -TOLERANCE) {
+                    isMedoid[medoids[removed]] = false;
+                    isMedoid[candidate] = true;
+                    medoids[removed] = candidate;
+                    updateNearest(distances, medoids, nearest, nearestDistances, secondDistances);
+                    updateRemovalLoss(nearest, nearestDistances, secondDistances, removalLoss);
+                    sinceLastSwap = 0;
+                }
+
+            }
+
+            ++sinceLastSwap;
+            candidate = (candidate + 1) % n;
+
+        }
+
+        return medoids;
+
+    }
+
+    private static double totalDistance(final PairwiseDistances distances, final int medoid) {
+
+        double sum = 0;
+        for (int o = 0; o < distances.size(); ++o) {
+            sum += distances.distance(o, medoid);
+        }
+        return sum;
+
+    }
+
+    private static int[] seed(final PairwiseDistances distances, final int k, final Random random) {
+
+        final int n = distances.size();
+        final int[] medoids = new int[k];
+        final double[] minimumDistances = new double[n];
+
+        Arrays.fill(minimumDistances, Double.POSITIVE_INFINITY);
+        medoids[0] = random.nextInt(n);
+
+        for (int j = 1; j < k; ++j) {
+
+            double sum = 0;
+            for (int o = 0; o < n; ++o) {
+                final double distance = distances.distance(o, medoids[j - 1]);
+                minimumDistances[o] = Math.min(minimumDistances[o], distance * distance);
+                sum += minimumDistances[o];
+            }
+
+            int selected = -1;
+
+            if (sum > 0) {
+                final double r = random.nextDouble() * sum;
+                double cumulative = 0;
+                for (int o = 0; o < n && selected == -1; ++o) {
+                    cumulative += minimumDistances[o];
+                    if (r < cumulative && minimumDistances[o] > 0) {
+                        selected = o;
+                    }
+                }
+            }
+
+            if (selected == -1) {
+                selected = firstNonMedoid(medoids, j, n);
+            }
+
+            medoids[j] = selected;
+
+        }
+
+        return medoids;
+
+    }
+
+    private static int firstNonMedoid(final int[] medoids, final int count, final int n) {
+
+        for (int o = 0; o < n; ++o) {
+            boolean medoid = false;
+            for (int j = 0; j < count && !medoid; ++j) {
+                medoid = medoids[j] == o;
+            }
+            if (!medoid) {
+                return o;
+            }
+        }
+
+        throw new IllegalStateException();
+
+    }
+
+    /** Finds the closest and second closest medoids of every sample, in
+     * parallel across the samples.
+     */
+    private static void updateNearest(final PairwiseDistances distances, final int[] medoids, final int[] nearest,
+                                      final double[] nearestDistances, final double[] secondDistances) {
+
+        IntStream.range(0, nearest.length).parallel().forEach(o -> {
+
+            int closest = 0;
+            double first = Double.POSITIVE_INFINITY;
+            double second = Double.POSITIVE_INFINITY;
+
+            for (int j = 0; j < medoids.length; ++j) {
+                final double distance = distances.distance(o, medoids[j]);
+                if (distance < first) {
+                    second = first;
+                    first = distance;
+                    closest = j;
+                } else if (distance < second) {
+                    second = distance;
+                }
+            }
+
+            nearest[o] = closest;
+            nearestDistances[o] = first;
+            secondDistances[o] = second;
+
+        });
+
+    }
+
+    private static void updateRemovalLoss(final int[] nearest, final double[] nearestDistances,
+                                          final double[] secondDistances, final double[] removalLoss) {
+
+        Arrays.fill(removalLoss, 0);
+        for (int o = 0; o < nearest.length; ++o) {
+            removalLoss[nearest[o]] += secondDistances[o] - nearestDistances[o];
+        }
+
+    }
+
+    private static double distanceToTheClosestMedoid(final List<Sample> samples, final int[] medoids, final int o) {
+
+        double minimum = Double.POSITIVE_INFINITY;
+        for (final int medoid : medoids) {
+            minimum = Math.min(minimum, samples.get(o).distance(samples.get(medoid)));
+        }
+        return minimum;
+
+    }
+
+    /** Groups the samples by medoid, each medoid first in its cluster, even if
+     * another medoid is just as close to it.
+     */
+    private static List<Cluster> toClusters(final List<Sample> samples, final int[] medoids, final int[] nearest) {
+
+        final List<List<Sample>> members = new ArrayList<>();
+        for (final int medoid : medoids) {
+            final List<Sample> cluster = new ArrayList<>();
+            cluster.add(samples.get(medoid));
+            members.add(cluster);
+        }
+
+        final int[] sorted = medoids.clone();
+        Arrays.sort(sorted);
+
+        for (int o = 0; o < samples.size(); ++o) {
+            if (Arrays.binarySearch(sorted, o) < 0) {
+                members.get(nearest[o]).add(samples.get(o));
+            }
+        }
+
+        final List<Cluster> clusters = new ArrayList<>();
+        members.forEach(cluster -> clusters.add(new Cluster(cluster)));
+        return clusters;
+
+    }
+
+}
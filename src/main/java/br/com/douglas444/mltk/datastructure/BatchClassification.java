@@ -0,0 +1,43 @@
+package br.com.douglas444.mltk.datastructure;
+
+public class BatchClassification {
+
+    private final int[] indices;
+    private final double[] distances;
+    private final int[] labels;
+    private final boolean[] insideRadius;
+
+    public BatchClassification(final int size) {
+        this.indices = new int[size];
+        this.distances = new double[size];
+        this.labels = new int[size];
+        this.insideRadius = new boolean[size];
+    }
+
+    public int size() {
+        return this.indices.length;
+    }
+
+    /** Returns, for each classified sample, the position of the closest summary
+     * in the list the decision model was built from.
+     */
+    public int[] getIndices() {
+        return indices;
+    }
+
+    public double[] getDistances() {
+        return distances;
+    }
+
+    /** Returns, for each classified sample, the label of the closest summary, or
+     * {@link DecisionModel#NO_LABEL} if that summary has no label.
+     */
+    public int[] getLabels() {
+        return labels;
+    }
+
+    public boolean[] getInsideRadius() {
+        return insideRadius;
+    }
+
+}
@@ -0,0 +1,121 @@
+package br.com.douglas444.mltk.datastructure;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/** Pairwise distances of a set of samples too large for a
+ * {@link TriangularDistanceMatrix}, computed on demand by square blocks of
+ * the upper triangle and kept in a least recently used cache of a fixed
+ * number of blocks. A lookup that misses computes the whole block, blockSize²
+ * distances, so it pays off when lookups are local, as in the passes of a
+ * clustering algorithm over the rows near a few other rows.
+ *
+ * Lookups may come from several threads: a block is computed outside of the
+ * lock, so two threads missing the same block may both compute it.
+ */
+public class BlockedDistanceCache implements PairwiseDistances {
+
+    private final double[] points;
+    private final int n;
+    private final int dimensions;
+    private final int blockSize;
+    private final Map<Long, float[]> blocks;
+    private long misses;
+
+    private BlockedDistanceCache(final double[] points, final int n, final int dimensions, final int blockSize,
+                                 final int maxBlocks) {
+
+        if (blockSize < 1 || maxBlocks < 1) {
+            throw new IllegalArgumentException();
+        }
+
+        this.points = points;
+        this.n = n;
+        this.dimensions = dimensions;
+        this.blockSize = blockSize;
+        this.misses = 0;
+        this.blocks = new LinkedHashMap<Long, float[]>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<Long, float[]> eldest) {
+                return this.size() > maxBlocks;
+            }
+        };
+
+    }
+
+    /** @param blockSize Number of rows and columns of each block.
+     * @param maxBlocks Number of blocks kept, each one of blockSize² floats.
+     */
+    public static BlockedDistanceCache of(final List<Sample> samples, final int blockSize, final int maxBlocks) {
+        return new BlockedDistanceCache(TriangularDistanceMatrix.flatten(samples), samples.size(),
+                TriangularDistanceMatrix.dimensionsOf(samples), blockSize, maxBlocks);
+    }
+
+    public static BlockedDistanceCache of(final SampleMatrix samples, final int blockSize, final int maxBlocks) {
+        return new BlockedDistanceCache(TriangularDistanceMatrix.flatten(samples), samples.size(),
+                samples.getDimensions(), blockSize, maxBlocks);
+    }
+
+    @Override
+    public int size() {
+        return this.n;
+    }
+
+    @Override
+    public double distance(final int i, final int j) {
+
+        if (i == j) {
+            return 0;
+        }
+
+        final int row = Math.min(i, j);
+        final int column = Math.max(i, j);
+        final int first = row / this.blockSize;
+        final int second = column / this.blockSize;
+        final long key = (long) first * this.n + second;
+
+        float[] block;
+        synchronized (this.blocks) {
+            block = this.blocks.get(key);
+        }
+
+        if (block == null) {
+            block = this.computeBlock(first, second);
+            synchronized (this.blocks) {
+                this.blocks.put(key, block);
+                ++this.misses;
+            }
+        }
+
+        return block[(row - first * this.blockSize) * this.blockSize + (column - second * this.blockSize)];
+
+    }
+
+    private float[] computeBlock(final int first, final int second) {
+
+        final float[] block = new float[this.blockSize * this.blockSize];
+        final int rowStart = first * this.blockSize;
+        final int columnStart = second * this.blockSize;
+        final int rowEnd = Math.min(this.n, rowStart + this.blockSize);
+        final int columnEnd = Math.min(this.n, columnStart + this.blockSize);
+
+        for (int i = rowStart; i < rowEnd; ++i) {
+            for (int j = Math.max(i + 1, columnStart); j < columnEnd; ++j) {
+                block[(i - rowStart) * this.blockSize + (j - columnStart)] =
+                        (float) TriangularDistanceMatrix.distance(this.points, i, j, this.dimensions);
+            }
+        }
+
+        return block;
+
+    }
+
+    /** Returns the number of blocks computed so far, evicted ones included. */
+    public long getMisses() {
+        synchronized (this.blocks) {
+            return this.misses;
+        }
+    }
+
+}
@@ -74,6 +74,30 @@ public class ClusterFeature implements ClusterSummary {
         return microClusterByCentroid.get(closestCentroid);
     }
 
+    /** Adds a sparse sample, updating only the linear sums of its non-zero
+     * dimensions and the squared sums of the pairs of them, so the cost grows
+     * with the square of the non-zero values instead of the dimensions.
+     */
+    public void add(final SparseSample sample) {
+
+        if (sample.getDimensions() != this.ls.length) {
+            throw new IllegalArgumentException();
+        }
+
+        final int[] indices = sample.getIndices();
+        final double[] values = sample.getValues();
+
+        for (int i = 0; i < indices.length; ++i) {
+            this.ls[indices[i]] += values[i];
+            for (int j = 0; j < indices.length; ++j) {
+                this.ss[indices[i]][indices[j]] += values[i] * values[j];
+            }
+        }
+
+        ++this.n;
+
+    }
+
     public double[][] calculateCovarianceMatrix() {
 
         final double[][] covarianceMatrix = new double[ss.length][ss.length];
@@ -88,6 +112,17 @@ public class ClusterFeature implements ClusterSummary {
 
     }
 
+    public ClusterFeature copy() {
+
+        final double[][] ss = new double[this.ss.length][];
+        for (int i = 0; i < this.ss.length; ++i) {
+            ss[i] = this.ss[i].clone();
+        }
+
+        return new ClusterFeature(this.ls.clone(), ss, this.n, this.label);
+
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -0,0 +1,422 @@
+package br.com.douglas444.mltk.datastructure;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.IntStream;
+
+public class DecisionModel {
+
+    public static final int NO_LABEL = Integer.MIN_VALUE;
+
+    private static final int SAMPLE_TILE_SIZE = 64;
+    private static final int CENTROID_TILE_SIZE = 256;
+
+    private final List<ClusterSummary> summaries;
+    private final int dimensions;
+    private final double[] centroids;
+    private final float[] singleCentroids;
+    private final double[] weights;
+    private final double[] radii;
+    private final int[] labels;
+
+    public DecisionModel(final List<? extends ClusterSummary> summaries) {
+        this(summaries, 1);
+    }
+
+    /** Builds the model once from the summaries passed as argument, keeping
+     * their centroids in a single row-major array so that classification does
+     * not need to recompute them.
+     *
+     * @param radiusFactor Multiplier applied to the standard deviation of each
+     * summary to obtain the radius used by the "inside radius" flag.
+     */
+    public DecisionModel(final List<? extends ClusterSummary> summaries, final double radiusFactor) {
+        this(summaries, radiusFactor, false);
+    }
+
+    /** Builds the model, keeping the centroids as floats when singlePrecision
+     * is true. Distances are still summed in double, so the only loss is the
+     * rounding of each centroid value, a relative error of at most 6e-8 that
+     * can only change the closest centroid of samples almost equidistant from
+     * two of them. Samples given as doubles are compared against the float
+     * centroids widened on the fly, never rounded themselves, and samples given
+     * as floats, such as the values of a {@link FloatSampleMatrix}, are
+     * classified without being widened, which halves the memory read per
+     * comparison.
+     */
+    public DecisionModel(final List<? extends ClusterSummary> summaries, final double radiusFactor,
+                         final boolean singlePrecision) {
+        this(summaries, radiusFactor, singlePrecision, null);
+    }
+
+    /** Builds the model with a weighted distance, Σ wᵢ(xᵢ − cᵢ)², for instance
+     * to classify raw samples against centroids expressed in a per-dimension
+     * rescaled space, see
+     * {@link br.com.douglas444.mltk.preprocessing.OnlineNormalizer}.
+     *
+     * @param weights Weight of each dimension, or null for the plain
+     * Euclidean distance.
+     */
+    public DecisionModel(final List<? extends ClusterSummary> summaries, final double radiusFactor,
+                         final boolean singlePrecision, final double[] weights) {
+
+        if (summaries.isEmpty()) {
+            throw new IllegalArgumentException();
+        }
+
+        this.summaries = Collections.unmodifiableList(new ArrayList<>(summaries));
+        this.dimensions = this.summaries.get(0).calculateCentroid().getX().length;
+        final double[] centroids = new double[this.summaries.size() * this.dimensions];
+        this.radii = new double[this.summaries.size()];
+        this.labels = new int[this.summaries.size()];
+
+        for (int i = 0; i < this.summaries.size(); ++i) {
+
+            final ClusterSummary summary = this.summaries.get(i);
+            final Sample centroid = summary.calculateCentroid();
+
+            if (centroid.getX().length != this.dimensions) {
+                throw new IllegalArgumentException();
+            }
+
+            System.arraycopy(centroid.getX(), 0, centroids, i * this.dimensions, this.dimensions);
+            this.radii[i] = radiusFactor * calculateStandardDeviation(summary);
+            this.labels[i] = centroid.getY() == null ? NO_LABEL : centroid.getY();
+
+        }
+
+        if (weights != null && weights.length != this.dimensions) {
+            throw new IllegalArgumentException();
+        }
+
+        this.weights = weights == null ? null : weights.clone();
+
+        if (singlePrecision) {
+            this.centroids = null;
+            this.singleCentroids = new float[centroids.length];
+            for (int i = 0; i < centroids.length; ++i) {
+                this.singleCentroids[i] = (float) centroids[i];
+            }
+        } else {
+            this.centroids = centroids;
+            this.singleCentroids = null;
+        }
+
+    }
+
+    public BatchClassification classify(final double[][] samples) {
+        return classify(samples, false);
+    }
+
+    public BatchClassification classify(final double[][] samples, final boolean parallel) {
+
+        final double[] buffer = new double[samples.length * this.dimensions];
+
+        for (int i = 0; i < samples.length; ++i) {
+            if (samples[i].length != this.dimensions) {
+                throw new IllegalArgumentException();
+            }
+            System.arraycopy(samples[i], 0, buffer, i * this.dimensions, this.dimensions);
+        }
+
+        return classify(buffer, samples.length, parallel);
+    }
+
+    public BatchClassification classify(final double[] buffer, final int n) {
+        return classify(buffer, n, false);
+    }
+
+    /** Classifies the first n samples stored row by row in the buffer passed as
+     * argument. The samples are processed in tiles, each tile being compared
+     * against blocks of centroids so that both stay in cache; when parallel is
+     * true the tiles are distributed across the common fork-join pool.
+     */
+    public BatchClassification classify(final double[] buffer, final int n, final boolean parallel) {
+
+        if (n < 0 || (long) n * this.dimensions > buffer.length) {
+            throw new IllegalArgumentException();
+        }
+
+        final BatchClassification classification = new BatchClassification(n);
+
+        forEachTile(n, parallel, (from, to) -> {
+            classifyTile(buffer, from, from, to, classification);
+        });
+
+        return classification;
+
+    }
+
+    public BatchClassification classify(final float[] buffer, final int n) {
+        return classify(buffer, n, false);
+    }
+
+    /** Classifies the first n samples stored as floats, row by row, in the
+     * buffer passed as argument. Without widening them when the model is in
+     * single precision, one tile at a time otherwise.
+     */
+    public BatchClassification classify(final float[] buffer, final int n, final boolean parallel) {
+
+        if (n < 0 || (long) n * this.dimensions > buffer.length) {
+            throw new IllegalArgumentException();
+        }
+
+        final BatchClassification classification = new BatchClassification(n);
+
+        forEachTile(n, parallel, (from, to) -> {
+            if (isSinglePrecision()) {
+                classifyTile(buffer, from, from, to, classification);
+            } else {
+                classifyTile(widen(buffer, from * this.dimensions, (to - from) * this.dimensions), 0,
+                        from, to, classification);
+            }
+        });
+
+        return classification;
+
+    }
+
+    public BatchClassification classify(final SampleMatrix samples) {
+        return classify(samples, false);
+    }
+
+    /** Classifies every sample of the matrix passed as argument, copying one
+     * tile of rows at a time out of the matrix so that matrices backed by
+     * buffers are read sequentially and never copied as a whole.
+     */
+    public BatchClassification classify(final SampleMatrix samples, final boolean parallel) {
+
+        if (samples.getDimensions() != this.dimensions) {
+            throw new IllegalArgumentException();
+        }
+
+        final int n = samples.size();
+
+        if (samples instanceof FloatSampleMatrix) {
+            return classify(((FloatSampleMatrix) samples).getValues(), n, parallel);
+        }
+
+        final BatchClassification classification = new BatchClassification(n);
+
+        forEachTile(n, parallel, (from, to) -> {
+
+            final double[] buffer = new double[(to - from) * this.dimensions];
+
+            for (int i = from; i < to; ++i) {
+                samples.copyRow(i, buffer, (i - from) * this.dimensions);
+            }
+
+            classifyTile(buffer, 0, from, to, classification);
+
+        });
+
+        return classification;
+
+    }
+
+    public int calculateClosestIndex(final Sample sample) {
+
+        if (sample.getX().length != this.dimensions) {
+            throw new IllegalArgumentException();
+        }
+
+        return classify(sample.getX(), 1).getIndices()[0];
+
+    }
+
+    public ClusterSummary calculateClosestSummary(final Sample sample) {
+        return this.summaries.get(calculateClosestIndex(sample));
+    }
+
+    /** Compares a tile of samples given as doubles against every centroid,
+     * widening the float centroids when the model is in single precision.
+     */
+    private void classifyTile(final double[] buffer, final int bufferStart, final int from, final int to,
+                              final BatchClassification classification) {
+
+        final int[] indices = classification.getIndices();
+        final double[] distances = classification.getDistances();
+        final double[] centroids = this.centroids;
+        final float[] singleCentroids = this.singleCentroids;
+        final double[] weights = this.weights;
+        final int k = this.radii.length;
+
+        startTile(from, to, classification);
+
+        for (int centroidTile = 0; centroidTile < k; centroidTile += CENTROID_TILE_SIZE) {
+
+            final int lastCentroid = Math.min(k, centroidTile + CENTROID_TILE_SIZE);
+
+            for (int i = from; i < to; ++i) {
+
+                final int sampleOffset = (i - from + bufferStart) * this.dimensions;
+                int closest = indices[i];
+                double minimum = distances[i];
+
+                for (int j = centroidTile; j < lastCentroid; ++j) {
+
+                    final int centroidOffset = j * this.dimensions;
+                    double sum = 0;
+
+                    for (int l = 0; l < this.dimensions && sum < minimum; ++l) {
+                        final double difference = buffer[sampleOffset + l] - (centroids != null
+                                ? centroids[centroidOffset + l]
+                                : singleCentroids[centroidOffset + l]);
+                        sum += weights == null
+                                ? difference * difference
+                                : weights[l] * difference * difference;
+                    }
+
+                    if (sum < minimum || closest == -1) {
+                        minimum = sum;
+                        closest = j;
+                    }
+
+                }
+
+                indices[i] = closest;
+                distances[i] = minimum;
+
+            }
+
+        }
+
+        finishTile(from, to, classification);
+
+    }
+
+    /** Same as the double version, reading the samples and the centroids as
+     * floats but summing the squared differences in double.
+     */
+    private void classifyTile(final float[] buffer, final int bufferStart, final int from, final int to,
+                              final BatchClassification classification) {
+
+        final int[] indices = classification.getIndices();
+        final double[] distances = classification.getDistances();
+        final double[] weights = this.weights;
+        final int k = this.radii.length;
+
+        startTile(from, to, classification);
+
+        for (int centroidTile = 0; centroidTile < k; centroidTile += CENTROID_TILE_SIZE) {
+
+            final int lastCentroid = Math.min(k, centroidTile + CENTROID_TILE_SIZE);
+
+            for (int i = from; i < to; ++i) {
+
+                final int sampleOffset = (i - from + bufferStart) * this.dimensions;
+                int closest = indices[i];
+                double minimum = distances[i];
+
+                for (int j = centroidTile; j < lastCentroid; ++j) {
+
+                    final int centroidOffset = j * this.dimensions;
+                    double sum = 0;
+
+                    for (int l = 0; l < this.dimensions && sum < minimum; ++l) {
+                        final double difference = buffer[sampleOffset + l] - this.singleCentroids[centroidOffset + l];
+                        sum += weights == null
+                                ? difference * difference
+                                : weights[l] * difference * difference;
+                    }
+
+                    if (sum < minimum || closest == -1) {
+                        minimum = sum;
+                        closest = j;
+                    }
+
+                }
+
+                indices[i] = closest;
+                distances[i] = minimum;
+
+            }
+
+        }
+
+        finishTile(from, to, classification);
+
+    }
+
+    private static void startTile(final int from, final int to, final BatchClassification classification) {
+
+        final int[] indices = classification.getIndices();
+        final double[] distances = classification.getDistances();
+
+        for (int i = from; i < to; ++i) {
+            indices[i] = -1;
+            distances[i] = Double.POSITIVE_INFINITY;
+        }
+
+    }
+
+    private void finishTile(final int from, final int to, final BatchClassification classification) {
+
+        final int[] indices = classification.getIndices();
+        final double[] distances = classification.getDistances();
+        final int[] labels = classification.getLabels();
+        final boolean[] insideRadius = classification.getInsideRadius();
+
+        for (int i = from; i < to; ++i) {
+            distances[i] = Math.sqrt(distances[i]);
+            labels[i] = this.labels[indices[i]];
+            insideRadius[i] = distances[i] <= this.radii[indices[i]];
+        }
+
+    }
+
+    private static void forEachTile(final int n, final boolean parallel, final TileTask task) {
+
+        final int tiles = (n + SAMPLE_TILE_SIZE - 1) / SAMPLE_TILE_SIZE;
+
+        IntStream stream = IntStream.range(0, tiles);
+        if (parallel) {
+            stream = stream.parallel();
+        }
+
+        stream.forEach(tile -> task.run(tile * SAMPLE_TILE_SIZE, Math.min(n, (tile + 1) * SAMPLE_TILE_SIZE)));
+
+    }
+
+    private static double[] widen(final float[] values, final int from, final int length) {
+
+        final double[] widened = new double[length];
+        for (int i = 0; i < length; ++i) {
+            widened[i] = values[from + i];
+        }
+        return widened;
+
+    }
+
+    private static double calculateStandardDeviation(final ClusterSummary summary) {
+
+        if (summary instanceof PseudoPoint && ((PseudoPoint) summary).getStandardDeviation() == null) {
+            return 0;
+        }
+
+        return summary.calculateStandardDeviation();
+
+    }
+
+    public List<ClusterSummary> getSummaries() {
+        return summaries;
+    }
+
+    public int getDimensions() {
+        return dimensions;
+    }
+
+    public boolean isSinglePrecision() {
+        return this.singleCentroids != null;
+    }
+
+    public int size() {
+        return this.labels.length;
+    }
+
+    private interface TileTask {
+        void run(int from, int to);
+    }
+
+}
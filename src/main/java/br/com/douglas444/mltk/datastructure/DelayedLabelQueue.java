@@ -0,0 +1,201 @@
+package br.com.douglas444.mltk.datastructure;
+
+/** Joins late-arriving true labels with the predictions made earlier for the
+ * same sample and feeds the matches to
+ * {@link DynamicConfusionMatrix#updatedDelayed(int, int, boolean)}.
+ *
+ * Pending predictions are keyed by a strictly increasing identifier, such as
+ * {@link Sample#getT()}, and stored in a ring addressed by the key modulo the
+ * maximum delay, so that both adding and resolving a prediction take constant
+ * time. Predictions that are not resolved within the maximum delay are
+ * expired in bulk as newer keys arrive.
+ */
+public class DelayedLabelQueue {
+
+    private final DynamicConfusionMatrix confusionMatrix;
+    private final long maxDelay;
+
+    private final long[] keys;
+    private final int[] predictedLabels;
+    private final boolean[] novel;
+    private final boolean[] pending;
+
+    private final int[] batchRealLabels;
+    private final int[] batchPredictedLabels;
+    private final boolean[] batchNovel;
+    private int batchCount;
+
+    private long newestKey;
+    private long sweepKey;
+    private boolean empty;
+    private int pendingCount;
+    private long expiredCount;
+
+    /**
+     * @param maxDelay Maximum difference between the key of a pending
+     * prediction and the newest key for the prediction to still be resolvable.
+     * @param batchSize Number of resolutions accumulated before they are
+     * applied to the confusion matrix.
+     */
+    public DelayedLabelQueue(final DynamicConfusionMatrix confusionMatrix, final long maxDelay,
+                             final int batchSize) {
+
+        if (maxDelay < 0 || maxDelay >= Integer.MAX_VALUE || batchSize < 1) {
+            throw new IllegalArgumentException();
+        }
+
+        final int capacity = (int) maxDelay + 1;
+
+        this.confusionMatrix = confusionMatrix;
+        this.maxDelay = maxDelay;
+
+        this.keys = new long[capacity];
+        this.predictedLabels = new int[capacity];
+        this.novel = new boolean[capacity];
+        this.pending = new boolean[capacity];
+
+        this.batchRealLabels = new int[batchSize];
+        this.batchPredictedLabels = new int[batchSize];
+        this.batchNovel = new boolean[batchSize];
+        this.batchCount = 0;
+
+        this.empty = true;
+        this.pendingCount = 0;
+        this.expiredCount = 0;
+
+    }
+
+    /** Registers a prediction waiting for its true label, expiring the pending
+     * predictions that fell more than the maximum delay behind its key.
+     */
+    public void add(final long key, final int predictedLabel, final boolean isNovel) {
+
+        if (this.empty) {
+            this.sweepKey = key;
+            this.empty = false;
+        } else if (key <= this.newestKey) {
+            throw new IllegalArgumentException("Keys must be strictly increasing");
+        }
+
+        this.newestKey = key;
+        this.expire(key - this.maxDelay);
+
+        final int slot = this.slot(key);
+
+        this.keys[slot] = key;
+        this.predictedLabels[slot] = predictedLabel;
+        this.novel[slot] = isNovel;
+        this.pending[slot] = true;
+        ++this.pendingCount;
+
+    }
+
+    /** Matches the true label passed as argument with the pending prediction of
+     * the same key. The match is applied to the confusion matrix once the batch
+     * is full or {@link #flush()} is called.
+     *
+     * @return Returns false if there is no pending prediction for the key,
+     * either because it was never added, was already resolved or has expired.
+     */
+    public boolean resolve(final long key, final int realLabel) {
+
+        if (this.empty) {
+            return false;
+        }
+
+        final int slot = this.slot(key);
+
+        if (!this.pending[slot] || this.keys[slot] != key) {
+            return false;
+        }
+
+        this.pending[slot] = false;
+        --this.pendingCount;
+
+        this.batchRealLabels[this.batchCount] = realLabel;
+        this.batchPredictedLabels[this.batchCount] = this.predictedLabels[slot];
+        this.batchNovel[this.batchCount] = this.novel[slot];
+
+        if (++this.batchCount == this.batchRealLabels.length) {
+            this.flush();
+        }
+
+        return true;
+
+    }
+
+    /** Expires every pending prediction whose key is lower than the key passed
+     * as argument.
+     *
+     * @return Returns the number of predictions expired.
+     */
+    public int expire(final long oldestKept) {
+
+        if (this.empty || oldestKept <= this.sweepKey) {
+            return 0;
+        }
+
+        final long last = Math.min(oldestKept, this.newestKey + 1);
+        final long from = Math.max(this.sweepKey, last - this.keys.length);
+        int expired = 0;
+
+        for (long key = from; key < last; ++key) {
+            final int slot = this.slot(key);
+            if (this.pending[slot] && this.keys[slot] < oldestKept) {
+                this.pending[slot] = false;
+                ++expired;
+            }
+        }
+
+        this.sweepKey = oldestKept;
+        this.pendingCount -= expired;
+        this.expiredCount += expired;
+
+        return expired;
+
+    }
+
+    /** Applies the accumulated resolutions to the confusion matrix, in the
+     * order they were resolved. If the confusion matrix rejects one of them,
+     * the ones before it stay applied, the rejected one is dropped and the ones
+     * after it are kept for the next flush, so no resolution is applied twice.
+     */
+    public void flush() {
+
+        final int count = this.batchCount;
+        this.batchCount = 0;
+        int i = 0;
+
+        try {
+            for (; i < count; ++i) {
+                this.confusionMatrix.updatedDelayed(this.batchRealLabels[i], this.batchPredictedLabels[i],
+                        this.batchNovel[i]);
+            }
+        } catch (RuntimeException e) {
+            final int remaining = count - i - 1;
+            System.arraycopy(this.batchRealLabels, i + 1, this.batchRealLabels, 0, remaining);
+            System.arraycopy(this.batchPredictedLabels, i + 1, this.batchPredictedLabels, 0, remaining);
+            System.arraycopy(this.batchNovel, i + 1, this.batchNovel, 0, remaining);
+            this.batchCount = remaining;
+            throw e;
+        }
+
+    }
+
+    private int slot(final long key) {
+        return (int) Math.floorMod(key, (long) this.keys.length);
+    }
+
+    public int getPendingCount() {
+        return pendingCount;
+    }
+
+    public long getExpiredCount() {
+        return expiredCount;
+    }
+
+    public long getMaxDelay() {
+        return maxDelay;
+    }
+
+}
@@ -0,0 +1,92 @@
+package br.com.douglas444.mltk.datastructure;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+/** Every pairwise distance of a set of samples, computed once and kept in a
+ * square array of n² doubles, so a lookup is a single array read. Rows are
+ * computed in parallel, each one only up to the diagonal and mirrored, so
+ * every distance is computed once. The n² doubles limit it to a few tens of
+ * thousands of samples.
+ */
+public class DistanceMatrix implements PairwiseDistances {
+
+    private final int n;
+    private final double[] distances;
+
+    private DistanceMatrix(final int n) {
+
+        if ((long) n * n > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many samples for a square distance matrix");
+        }
+
+        this.n = n;
+        this.distances = new double[n * n];
+
+    }
+
+    public static DistanceMatrix of(final List<Sample> samples) {
+
+        final DistanceMatrix matrix = new DistanceMatrix(samples.size());
+
+        IntStream.range(0, matrix.n).parallel().forEach(i -> {
+            final Sample sample = samples.get(i);
+            for (int j = 0; j < i; ++j) {
+                matrix.distances[i * matrix.n + j] = sample.distance(samples.get(j));
+            }
+        });
+
+        matrix.mirror();
+        return matrix;
+
+    }
+
+    public static DistanceMatrix of(final SampleMatrix samples) {
+
+        final DistanceMatrix matrix = new DistanceMatrix(samples.size());
+        final int dimensions = samples.getDimensions();
+
+        IntStream.range(0, matrix.n).parallel().forEach(i -> {
+
+            final double[] x = new double[dimensions];
+            final double[] y = new double[dimensions];
+            samples.copyRow(i, x, 0);
+
+            for (int j = 0; j < i; ++j) {
+                samples.copyRow(j, y, 0);
+                double sum = 0;
+                for (int l = 0; l < dimensions; ++l) {
+                    final double difference = x[l] - y[l];
+                    sum += difference * difference;
+                }
+                matrix.distances[i * matrix.n + j] = Math.sqrt(sum);
+            }
+
+        });
+
+        matrix.mirror();
+        return matrix;
+
+    }
+
+    private void mirror() {
+
+        for (int i = 0; i < this.n; ++i) {
+            for (int j = 0; j < i; ++j) {
+                this.distances[j * this.n + i] = this.distances[i * this.n + j];
+            }
+        }
+
+    }
+
+    @Override
+    public int size() {
+        return this.n;
+    }
+
+    @Override
+    public double distance(final int i, final int j) {
+        return this.distances[i * this.n + j];
+    }
+
+}
@@ -1,5 +1,7 @@
 package br.com.douglas444.mltk.datastructure;
 
+import br.com.douglas444.mltk.util.FlightRecorder;
+
 import java.util.*;
 
 public class DynamicConfusionMatrix {
@@ -396,6 +398,7 @@ public class DynamicConfusionMatrix {
 
     public double measureCER() {
 
+        final Object event = FlightRecorder.beginEvaluation();
         double sum = 0;
         final int totalExplainedSamples = this.numberOfExplainedSamples();
         final HashMap<Integer, List<Integer>> association = calculateNoveltyAssociationByRow();
@@ -421,12 +424,16 @@ public class DynamicConfusionMatrix {
 
         }).reduce(0.0, Double::sum);
 
+        FlightRecorder.commitEvaluation(event, "CER", sum / 2, totalExplainedSamples);
+
         return sum / 2;
     }
 
     public double measureUnkR() {
 
-        return this.rowLabels.stream()
+        final Object event = FlightRecorder.beginEvaluation();
+
+        final double unkR = this.rowLabels.stream()
                 .map(rowLabel -> {
 
                     final double unexplained = this.unknownColumn.get(this.rowIndexByLabel.get(rowLabel));
@@ -445,5 +452,11 @@ public class DynamicConfusionMatrix {
                 })
                 .reduce(0.0, Double::sum) / this.rowLabels.size();
 
+        if (event != null) {
+            FlightRecorder.commitEvaluation(event, "UnkR", unkR, this.numberOfExplainedSamples());
+        }
+
+        return unkR;
+
     }
 }
@@ -0,0 +1,135 @@
+package br.com.douglas444.mltk.datastructure;
+
+import java.util.Arrays;
+
+/** Growable sample matrix that stores its values as floats, row by row in a
+ * single array, halving the memory used and read compared to doubles.
+ *
+ * A float keeps 24 bits of mantissa, about 7 significant decimal digits, so
+ * each value is stored with a relative error of at most 6e-8. The algorithms
+ * reading the matrix widen every value to double before using it, and keep
+ * their sums and distances in double, so the rounding is only paid once, when a
+ * sample is stored; in practice, only samples almost equidistant from two
+ * centroids may end up assigned differently than with doubles.
+ */
+public class FloatSampleMatrix implements SampleMatrix {
+
+    private final int dimensions;
+    private float[] x;
+    private long[] t;
+    private int[] y;
+    private int size;
+
+    public FloatSampleMatrix(final int dimensions) {
+        this(dimensions, 16);
+    }
+
+    public FloatSampleMatrix(final int dimensions, final int initialCapacity) {
+
+        if (dimensions < 1 || initialCapacity < 1) {
+            throw new IllegalArgumentException();
+        }
+
+        this.dimensions = dimensions;
+        this.x = new float[initialCapacity * dimensions];
+        this.t = new long[initialCapacity];
+        this.y = new int[initialCapacity];
+        this.size = 0;
+
+    }
+
+    /** Copies every row of the matrix passed as argument, rounding its values
+     * to floats.
+     */
+    public static FloatSampleMatrix copyOf(final SampleMatrix samples) {
+
+        final FloatSampleMatrix copy = new FloatSampleMatrix(samples.getDimensions(),
+                Math.max(1, samples.size()));
+        final double[] row = new double[samples.getDimensions()];
+
+        for (int i = 0; i < samples.size(); ++i) {
+            samples.copyRow(i, row, 0);
+            copy.append(samples.getT(i), row, samples.getY(i));
+        }
+
+        return copy;
+
+    }
+
+    public int append(final Sample sample) {
+        return this.append(sample.getT(), sample.getX(), sample.getY());
+    }
+
+    /** Appends a sample, rounding its values to floats.
+     *
+     * @return Returns the row of the sample.
+     */
+    public int append(final long t, final double[] x, final Integer y) {
+
+        if (x.length != this.dimensions) {
+            throw new IllegalArgumentException();
+        }
+
+        if (this.size == this.t.length) {
+            final int capacity = this.t.length * 2;
+            this.x = Arrays.copyOf(this.x, capacity * this.dimensions);
+            this.t = Arrays.copyOf(this.t, capacity);
+            this.y = Arrays.copyOf(this.y, capacity);
+        }
+
+        final int offset = this.size * this.dimensions;
+        for (int i = 0; i < this.dimensions; ++i) {
+            this.x[offset + i] = (float) x[i];
+        }
+
+        this.t[this.size] = t;
+        this.y[this.size] = y == null ? DecisionModel.NO_LABEL : y;
+
+        return this.size++;
+
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    @Override
+    public int getDimensions() {
+        return this.dimensions;
+    }
+
+    @Override
+    public double get(final int row, final int column) {
+        return this.x[row * this.dimensions + column];
+    }
+
+    @Override
+    public void copyRow(final int row, final double[] destination, final int offset) {
+
+        final int start = row * this.dimensions;
+        for (int i = 0; i < this.dimensions; ++i) {
+            destination[offset + i] = this.x[start + i];
+        }
+
+    }
+
+    @Override
+    public long getT(final int row) {
+        return this.t[row];
+    }
+
+    @Override
+    public Integer getY(final int row) {
+        return this.y[row] == DecisionModel.NO_LABEL ? null : this.y[row];
+    }
+
+    /** Returns the values row by row, ready for
+     * {@link DecisionModel#classify(float[], int)}. Only the first
+     * size * dimensions values are meaningful.
+     */
+    public float[] getValues() {
+        return x;
+    }
+
+}
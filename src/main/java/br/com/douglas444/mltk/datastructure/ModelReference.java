@@ -0,0 +1,106 @@
+package br.com.douglas444.mltk.datastructure;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+
+/** Holds the current {@link ModelSnapshot} of a decision model. Readers call
+ * {@link #get()}, which never blocks, and keep using the snapshot they got for
+ * as long as they need a consistent model. Writers build the next version from
+ * a copy of the cluster features and publish it with a single reference swap,
+ * taking a lock among themselves so a version is never built twice.
+ */
+public class ModelReference {
+
+    private final AtomicReference<ModelSnapshot> current;
+    private final Object writeLock = new Object();
+    private final double radiusFactor;
+    private final boolean singlePrecision;
+
+    public ModelReference(final List<ClusterFeature> clusterFeatures) {
+        this(clusterFeatures, 1);
+    }
+
+    public ModelReference(final List<ClusterFeature> clusterFeatures, final double radiusFactor) {
+        this(clusterFeatures, radiusFactor, false);
+    }
+
+    /**
+     * @param singlePrecision Whether every published snapshot keeps its
+     * centroids as floats.
+     */
+    public ModelReference(final List<ClusterFeature> clusterFeatures, final double radiusFactor,
+                          final boolean singlePrecision) {
+        this.radiusFactor = radiusFactor;
+        this.singlePrecision = singlePrecision;
+        this.current = new AtomicReference<>(new ModelSnapshot(0, clusterFeatures, radiusFactor,
+                singlePrecision));
+    }
+
+    public ModelSnapshot get() {
+        return this.current.get();
+    }
+
+    /** Publishes the cluster features passed as argument as the next version,
+     * regardless of what was published in the meantime. The snapshot is built
+     * before taking the writer lock.
+     *
+     * @return Returns the published snapshot.
+     */
+    public ModelSnapshot publish(final List<ClusterFeature> clusterFeatures) {
+
+        final ModelSnapshot built = new ModelSnapshot(this.current.get().getVersion() + 1, clusterFeatures,
+                this.radiusFactor, this.singlePrecision);
+
+        synchronized (this.writeLock) {
+            final ModelSnapshot next = built.withVersion(this.current.get().getVersion() + 1);
+            this.current.set(next);
+            return next;
+        }
+
+    }
+
+    /** Publishes the cluster features passed as argument only if the current
+     * snapshot is still the expected one.
+     *
+     * @return Returns true if the snapshot was swapped, and false if another
+     * writer published a version after the expected one.
+     */
+    public boolean compareAndPublish(final ModelSnapshot expected, final List<ClusterFeature> clusterFeatures) {
+
+        if (this.current.get() != expected) {
+            return false;
+        }
+
+        final ModelSnapshot next = new ModelSnapshot(expected.getVersion() + 1, clusterFeatures,
+                this.radiusFactor, this.singlePrecision);
+
+        synchronized (this.writeLock) {
+            if (this.current.get() != expected) {
+                return false;
+            }
+            this.current.set(next);
+            return true;
+        }
+
+    }
+
+    /** Applies the update passed as argument to a copy of the cluster features
+     * of the current snapshot and publishes the result. The update runs under
+     * the writer lock, so it is applied exactly once, to the latest snapshot.
+     *
+     * @return Returns the published snapshot.
+     */
+    public ModelSnapshot update(final UnaryOperator<List<ClusterFeature>> update) {
+
+        synchronized (this.writeLock) {
+            final ModelSnapshot expected = this.current.get();
+            final ModelSnapshot next = new ModelSnapshot(expected.getVersion() + 1,
+                    update.apply(expected.copyClusterFeatures()), this.radiusFactor, this.singlePrecision);
+            this.current.set(next);
+            return next;
+        }
+
+    }
+
+}
@@ -0,0 +1,104 @@
+package br.com.douglas444.mltk.datastructure;
+
+import br.com.douglas444.mltk.util.FlightRecorder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/** Immutable version of a decision model. The cluster features passed to the
+ * constructor are copied, so later changes made by the writer through
+ * {@link ClusterFeature#setLs}, {@link ClusterFeature#setN} and the like are
+ * never observed by the readers of a snapshot. The {@link DecisionModel} only
+ * gets a {@link PseudoPoint} per cluster feature, holding its centroid, label
+ * and standard deviation, so a reader changing one of its summaries cannot
+ * change what {@link #copyClusterFeatures()} hands to the next version, and
+ * the d×d sums of squares are only kept once.
+ */
+public final class ModelSnapshot {
+
+    private final long version;
+    private final List<ClusterFeature> clusterFeatures;
+    private final DecisionModel decisionModel;
+
+    public ModelSnapshot(final long version, final List<ClusterFeature> clusterFeatures,
+                         final double radiusFactor) {
+        this(version, clusterFeatures, radiusFactor, false);
+    }
+
+    /**
+     * @param singlePrecision Whether the decision model keeps its centroids as
+     * floats, see {@link DecisionModel#DecisionModel(List, double, boolean)}.
+     * The cluster features themselves always keep their sums in double.
+     */
+    public ModelSnapshot(final long version, final List<ClusterFeature> clusterFeatures,
+                         final double radiusFactor, final boolean singlePrecision) {
+
+        final Object event = FlightRecorder.beginModelRebuild();
+        final List<ClusterFeature> copies = new ArrayList<>();
+        final List<PseudoPoint> pseudoPoints = new ArrayList<>();
+        clusterFeatures.forEach(clusterFeature -> {
+            copies.add(clusterFeature.copy());
+            final PseudoPoint pseudoPoint = new PseudoPoint(clusterFeature.calculateCentroid(),
+                    clusterFeature.calculateStandardDeviation());
+            pseudoPoint.setN(clusterFeature.getN());
+            pseudoPoints.add(pseudoPoint);
+        });
+
+        this.version = version;
+        this.clusterFeatures = Collections.unmodifiableList(copies);
+        this.decisionModel = new DecisionModel(pseudoPoints, radiusFactor, singlePrecision);
+
+        FlightRecorder.commitModelRebuild(event, version, copies.size());
+
+    }
+
+    private ModelSnapshot(final long version, final ModelSnapshot snapshot) {
+        this.version = version;
+        this.clusterFeatures = snapshot.clusterFeatures;
+        this.decisionModel = snapshot.decisionModel;
+    }
+
+    /** Returns this snapshot under another version number, sharing its cluster
+     * features and decision model instead of rebuilding them.
+     */
+    ModelSnapshot withVersion(final long version) {
+        return version == this.version ? this : new ModelSnapshot(version, this);
+    }
+
+    public BatchClassification classify(final double[] buffer, final int n) {
+        return this.decisionModel.classify(buffer, n);
+    }
+
+    public BatchClassification classify(final float[] buffer, final int n) {
+        return this.decisionModel.classify(buffer, n);
+    }
+
+    public BatchClassification classify(final double[][] samples) {
+        return this.decisionModel.classify(samples);
+    }
+
+    /** Returns a private copy of the cluster features of this snapshot, to be
+     * modified by a writer and published as the next version.
+     */
+    public List<ClusterFeature> copyClusterFeatures() {
+
+        final List<ClusterFeature> copies = new ArrayList<>();
+        this.clusterFeatures.forEach(clusterFeature -> copies.add(clusterFeature.copy()));
+        return copies;
+
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public DecisionModel getDecisionModel() {
+        return decisionModel;
+    }
+
+    public int size() {
+        return this.clusterFeatures.size();
+    }
+
+}
@@ -0,0 +1,268 @@
+package br.com.douglas444.mltk.datastructure;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/** Growable sample store kept outside of the Java heap, in direct buffers. A
+ * single buffer cannot exceed 2 GB, so the samples are spread over fixed-size
+ * chunks, 64 MB by default, allocated as the store grows. Each
+ * sample takes one record holding its time, its label and its values, so the
+ * garbage collector only sees the chunk objects, however many samples there
+ * are. When built in single precision the values are stored as floats, with the
+ * same accuracy trade-off as {@link FloatSampleMatrix}.
+ *
+ * Direct buffers count against -XX:MaxDirectMemorySize, which defaults to
+ * the maximum heap size, so a store larger than the heap needs either that
+ * flag raised or a backing file, see
+ * {@link #OffHeapSampleMatrix(int, int, boolean, Path)}, whose chunks are
+ * mapped from the file and paged by the operating system instead.
+ *
+ * The memory of the chunks is only given back to the system once the garbage
+ * collector reclaims them: {@link #close()} drops every reference to them, so
+ * any later access fails, and deletes the backing file if there is one, but
+ * does not free the memory itself.
+ */
+public class OffHeapSampleMatrix implements SampleMatrix, AutoCloseable {
+
+    public static final int DEFAULT_CHUNK_SIZE = 1 << 26;
+
+    private static final int T_OFFSET = 0;
+    private static final int Y_OFFSET = 8;
+    private static final int HAS_Y_OFFSET = 12;
+    private static final int X_OFFSET = 16;
+
+    private final int dimensions;
+    private final boolean singlePrecision;
+    private final int recordSize;
+    private final int rowsPerChunk;
+    private final List<ByteBuffer> chunks;
+    private final FileChannel channel;
+    private final Path backingFile;
+    private int size;
+    private boolean closed;
+
+    public OffHeapSampleMatrix(final int dimensions) {
+        this(dimensions, DEFAULT_CHUNK_SIZE);
+    }
+
+    public OffHeapSampleMatrix(final int dimensions, final int chunkSize) {
+        this(dimensions, chunkSize, false);
+    }
+
+    public OffHeapSampleMatrix(final int dimensions, final int chunkSize, final boolean singlePrecision) {
+        this(dimensions, chunkSize, singlePrecision, null, null);
+    }
+
+    /** Builds a store whose chunks are mapped from the file passed as
+     * argument, which is created, or truncated, and grown one chunk at a time.
+     * The file is deleted by {@link #close()}.
+     */
+    public OffHeapSampleMatrix(final int dimensions, final int chunkSize, final boolean singlePrecision,
+                               final Path backingFile) throws IOException {
+        this(dimensions, chunkSize, singlePrecision, backingFile, FileChannel.open(backingFile,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ,
+                StandardOpenOption.WRITE));
+    }
+
+    private OffHeapSampleMatrix(final int dimensions, final int chunkSize, final boolean singlePrecision,
+                                final Path backingFile, final FileChannel channel) {
+
+        if (dimensions < 1) {
+            throw new IllegalArgumentException();
+        }
+
+        this.dimensions = dimensions;
+        this.singlePrecision = singlePrecision;
+        this.recordSize = singlePrecision
+                ? X_OFFSET + ((dimensions * Float.BYTES + 7) & ~7)
+                : X_OFFSET + dimensions * Double.BYTES;
+
+        if (chunkSize < this.recordSize) {
+            throw new IllegalArgumentException();
+        }
+
+        this.rowsPerChunk = chunkSize / this.recordSize;
+        this.chunks = new ArrayList<>();
+        this.channel = channel;
+        this.backingFile = backingFile;
+        this.size = 0;
+        this.closed = false;
+
+    }
+
+    public int append(final Sample sample) {
+        return this.append(sample.getT(), sample.getX(), sample.getY());
+    }
+
+    /** Copies a sample into the store.
+     *
+     * @return Returns the row of the sample.
+     */
+    public int append(final long t, final double[] x, final Integer y) {
+
+        if (x.length != this.dimensions) {
+            throw new IllegalArgumentException();
+        }
+
+        if (this.size == Integer.MAX_VALUE) {
+            throw new IllegalStateException("Sample matrix is full");
+        }
+
+        if (this.size == this.chunks.size() * this.rowsPerChunk) {
+            this.checkOpen();
+            this.chunks.add(this.allocateChunk().order(ByteOrder.nativeOrder()));
+        }
+
+        final int row = this.size++;
+        final ByteBuffer chunk = this.chunk(row);
+        final int record = this.record(row);
+
+        chunk.putLong(record + T_OFFSET, t);
+        chunk.putInt(record + Y_OFFSET, y == null ? 0 : y);
+        chunk.putInt(record + HAS_Y_OFFSET, y == null ? 0 : 1);
+
+        for (int i = 0; i < this.dimensions; ++i) {
+            if (this.singlePrecision) {
+                chunk.putFloat(record + X_OFFSET + i * Float.BYTES, (float) x[i]);
+            } else {
+                chunk.putDouble(record + X_OFFSET + i * Double.BYTES, x[i]);
+            }
+        }
+
+        return row;
+
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    @Override
+    public int getDimensions() {
+        return this.dimensions;
+    }
+
+    @Override
+    public double get(final int row, final int column) {
+
+        if (this.singlePrecision) {
+            return this.chunk(row).getFloat(this.record(row) + X_OFFSET + column * Float.BYTES);
+        }
+
+        return this.chunk(row).getDouble(this.record(row) + X_OFFSET + column * Double.BYTES);
+
+    }
+
+    @Override
+    public void copyRow(final int row, final double[] destination, final int offset) {
+
+        final ByteBuffer chunk = this.chunk(row);
+        final int values = this.record(row) + X_OFFSET;
+
+        for (int i = 0; i < this.dimensions; ++i) {
+            if (this.singlePrecision) {
+                destination[offset + i] = chunk.getFloat(values + i * Float.BYTES);
+            } else {
+                destination[offset + i] = chunk.getDouble(values + i * Double.BYTES);
+            }
+        }
+
+    }
+
+    @Override
+    public long getT(final int row) {
+        return this.chunk(row).getLong(this.record(row) + T_OFFSET);
+    }
+
+    @Override
+    public Integer getY(final int row) {
+
+        final ByteBuffer chunk = this.chunk(row);
+        final int record = this.record(row);
+
+        if (chunk.getInt(record + HAS_Y_OFFSET) == 0) {
+            return null;
+        }
+
+        return chunk.getInt(record + Y_OFFSET);
+
+    }
+
+    public boolean isSinglePrecision() {
+        return singlePrecision;
+    }
+
+    /** Drops the chunks and deletes the backing file, if any. The store cannot
+     * be used afterwards.
+     */
+    @Override
+    public void close() {
+
+        if (this.closed) {
+            return;
+        }
+
+        this.closed = true;
+        this.chunks.clear();
+        this.size = 0;
+
+        if (this.channel != null) {
+            try {
+                this.channel.close();
+                Files.deleteIfExists(this.backingFile);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+    }
+
+    private ByteBuffer allocateChunk() {
+
+        final int bytes = this.rowsPerChunk * this.recordSize;
+
+        if (this.channel == null) {
+            return ByteBuffer.allocateDirect(bytes);
+        }
+
+        try {
+            return this.channel.map(FileChannel.MapMode.READ_WRITE, (long) this.chunks.size() * bytes, bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+    }
+
+    private ByteBuffer chunk(final int row) {
+
+        if (row < 0 || row >= this.size) {
+            this.checkOpen();
+            throw new IndexOutOfBoundsException();
+        }
+
+        return this.chunks.get(row / this.rowsPerChunk);
+
+    }
+
+    private int record(final int row) {
+        return (row % this.rowsPerChunk) * this.recordSize;
+    }
+
+    private void checkOpen() {
+
+        if (this.closed) {
+            throw new IllegalStateException("Sample matrix is closed");
+        }
+
+    }
+
+}
@@ -0,0 +1,14 @@
+package br.com.douglas444.mltk.datastructure;
+
+/** Euclidean distances between every pair of a fixed set of samples,
+ * addressed by the index of each sample in the set. Implementations decide
+ * how much is computed up front and how much is kept.
+ */
+public interface PairwiseDistances {
+
+    /** Returns the number of samples. */
+    int size();
+
+    double distance(int i, int j);
+
+}
@@ -0,0 +1,155 @@
+package br.com.douglas444.mltk.datastructure;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/** Clustering of the rows of a {@link SampleMatrix}, given by the centroid of
+ * each cluster and the cluster of each row, without any {@link Cluster} or
+ * {@link Sample} per row.
+ */
+public class Partition {
+
+    private final List<Sample> centroids;
+    private final int[] assignments;
+    private final int[] sizes;
+
+    public Partition(final List<Sample> centroids, final int[] assignments) {
+
+        this.centroids = centroids;
+        this.assignments = assignments;
+        this.sizes = new int[centroids.size()];
+
+        for (final int assignment : assignments) {
+            ++this.sizes[assignment];
+        }
+
+    }
+
+    /** Summarizes each cluster as a {@link ClusterFeature}, labeled with the
+     * most frequent label of its samples, in a single pass over the matrix.
+     */
+    public List<ClusterFeature> toClusterFeatures(final SampleMatrix samples) {
+
+        if (samples.size() != this.assignments.length) {
+            throw new IllegalArgumentException();
+        }
+
+        final int k = this.centroids.size();
+        final int dimensions = samples.getDimensions();
+        final double[][] ls = new double[k][dimensions];
+        final double[][][] ss = new double[k][dimensions][dimensions];
+        final List<HashMap<Integer, Integer>> labelCounts = new ArrayList<>();
+        final double[] x = new double[dimensions];
+
+        for (int j = 0; j < k; ++j) {
+            labelCounts.add(new HashMap<>());
+        }
+
+        for (int i = 0; i < this.assignments.length; ++i) {
+
+            final int j = this.assignments[i];
+            samples.copyRow(i, x, 0);
+
+            for (int l = 0; l < dimensions; ++l) {
+                ls[j][l] += x[l];
+                for (int m = 0; m < dimensions; ++m) {
+                    ss[j][l][m] += x[l] * x[m];
+                }
+            }
+
+            final Integer label = samples.getY(i);
+            if (label != null) {
+                labelCounts.get(j).merge(label, 1, Integer::sum);
+            }
+
+        }
+
+        final List<ClusterFeature> clusterFeatures = new ArrayList<>();
+
+        for (int j = 0; j < k; ++j) {
+
+            if (this.sizes[j] == 0) {
+                continue;
+            }
+
+            final Integer label = labelCounts.get(j).entrySet().stream()
+                    .max(Map.Entry.comparingByValue())
+                    .map(Map.Entry::getKey)
+                    .orElse(null);
+
+            clusterFeatures.add(new ClusterFeature(ls[j], ss[j], this.sizes[j], label));
+
+        }
+
+        return clusterFeatures;
+
+    }
+
+    /** Summarizes each cluster as a {@link SparseClusterFeature}, labeled
+     * with the most frequent label of its samples, adding only the non-zero
+     * values of each row.
+     */
+    public List<SparseClusterFeature> toSparseClusterFeatures(final SparseSampleMatrix samples) {
+
+        if (samples.size() != this.assignments.length) {
+            throw new IllegalArgumentException();
+        }
+
+        final int k = this.centroids.size();
+        final double[][] ls = new double[k][samples.getDimensions()];
+        final double[] ss = new double[k];
+        final List<HashMap<Integer, Integer>> labelCounts = new ArrayList<>();
+
+        for (int j = 0; j < k; ++j) {
+            labelCounts.add(new HashMap<>());
+        }
+
+        for (int i = 0; i < this.assignments.length; ++i) {
+
+            final int j = this.assignments[i];
+            samples.addTo(i, ls[j], 0, 1);
+            ss[j] += samples.getSquaredNorm(i);
+
+            final Integer label = samples.getY(i);
+            if (label != null) {
+                labelCounts.get(j).merge(label, 1, Integer::sum);
+            }
+
+        }
+
+        final List<SparseClusterFeature> clusterFeatures = new ArrayList<>();
+
+        for (int j = 0; j < k; ++j) {
+
+            if (this.sizes[j] == 0) {
+                continue;
+            }
+
+            final Integer label = labelCounts.get(j).entrySet().stream()
+                    .max(Map.Entry.comparingByValue())
+                    .map(Map.Entry::getKey)
+                    .orElse(null);
+
+            clusterFeatures.add(new SparseClusterFeature(ls[j], ss[j], this.sizes[j], label));
+
+        }
+
+        return clusterFeatures;
+
+    }
+
+    public List<Sample> getCentroids() {
+        return centroids;
+    }
+
+    public int[] getAssignments() {
+        return assignments;
+    }
+
+    public int[] getSizes() {
+        return sizes;
+    }
+
+}
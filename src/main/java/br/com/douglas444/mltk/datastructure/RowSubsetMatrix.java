@@ -0,0 +1,60 @@
+package br.com.douglas444.mltk.datastructure;
+
+/** View of some rows of another {@link SampleMatrix}, in the order of the row
+ * indices passed to the constructor, without copying any value. Row i of the
+ * view is row rows[i] of the underlying matrix.
+ */
+public class RowSubsetMatrix implements SampleMatrix {
+
+    private final SampleMatrix samples;
+    private final int[] rows;
+
+    public RowSubsetMatrix(final SampleMatrix samples, final int[] rows) {
+
+        for (final int row : rows) {
+            if (row < 0 || row >= samples.size()) {
+                throw new IllegalArgumentException();
+            }
+        }
+
+        this.samples = samples;
+        this.rows = rows;
+
+    }
+
+    @Override
+    public int size() {
+        return this.rows.length;
+    }
+
+    @Override
+    public int getDimensions() {
+        return this.samples.getDimensions();
+    }
+
+    @Override
+    public double get(final int row, final int column) {
+        return this.samples.get(this.rows[row], column);
+    }
+
+    @Override
+    public void copyRow(final int row, final double[] destination, final int offset) {
+        this.samples.copyRow(this.rows[row], destination, offset);
+    }
+
+    @Override
+    public long getT(final int row) {
+        return this.samples.getT(this.rows[row]);
+    }
+
+    @Override
+    public Integer getY(final int row) {
+        return this.samples.getY(this.rows[row]);
+    }
+
+    /** Returns the row of the underlying matrix a row of the view maps to. */
+    public int getRow(final int row) {
+        return this.rows[row];
+    }
+
+}
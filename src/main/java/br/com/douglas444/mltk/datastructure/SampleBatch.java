@@ -0,0 +1,101 @@
+package br.com.douglas444.mltk.datastructure;
+
+/** Reusable fixed-capacity block of samples kept in primitive arrays: the
+ * values row by row in a single array, and the times and labels in parallel
+ * arrays, with {@link DecisionModel#NO_LABEL} standing for a missing label.
+ * The values array can be passed as is to
+ * {@link DecisionModel#classify(double[], int)}.
+ */
+public class SampleBatch implements SampleMatrix {
+
+    private final int dimensions;
+    private final double[] x;
+    private final long[] t;
+    private final int[] y;
+    private int size;
+
+    public SampleBatch(final int capacity, final int dimensions) {
+
+        if (capacity < 1 || dimensions < 1) {
+            throw new IllegalArgumentException();
+        }
+
+        this.dimensions = dimensions;
+        this.x = new double[capacity * dimensions];
+        this.t = new long[capacity];
+        this.y = new int[capacity];
+        this.size = 0;
+
+    }
+
+    /** Appends a row with the time and label passed as argument and returns its
+     * index; the values of the row are to be written directly into
+     * {@link #getX()}, starting at index * dimensions.
+     */
+    public int append(final long t, final int y) {
+
+        if (this.isFull()) {
+            throw new IllegalStateException();
+        }
+
+        this.t[this.size] = t;
+        this.y[this.size] = y;
+        return this.size++;
+
+    }
+
+    public void clear() {
+        this.size = 0;
+    }
+
+    public boolean isFull() {
+        return this.size == this.t.length;
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    @Override
+    public int getDimensions() {
+        return this.dimensions;
+    }
+
+    @Override
+    public double get(final int row, final int column) {
+        return this.x[row * this.dimensions + column];
+    }
+
+    @Override
+    public void copyRow(final int row, final double[] destination, final int offset) {
+        System.arraycopy(this.x, row * this.dimensions, destination, offset, this.dimensions);
+    }
+
+    @Override
+    public long getT(final int row) {
+        return this.t[row];
+    }
+
+    @Override
+    public Integer getY(final int row) {
+        return this.y[row] == DecisionModel.NO_LABEL ? null : this.y[row];
+    }
+
+    public int getCapacity() {
+        return this.t.length;
+    }
+
+    public double[] getX() {
+        return x;
+    }
+
+    public long[] getTimes() {
+        return t;
+    }
+
+    public int[] getLabels() {
+        return y;
+    }
+
+}
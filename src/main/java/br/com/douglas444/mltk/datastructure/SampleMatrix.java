@@ -0,0 +1,34 @@
+package br.com.douglas444.mltk.datastructure;
+
+/** Read-only block of samples with the same number of dimensions, addressed by
+ * row. Implementations may keep the values outside of {@link Sample} objects,
+ * for instance in a buffer mapped from a file, and only materialize a sample
+ * when {@link #getSample(int)} is called.
+ */
+public interface SampleMatrix {
+
+    int size();
+
+    int getDimensions();
+
+    double get(int row, int column);
+
+    /** Copies the values of a row into the destination array, starting at the
+     * offset passed as argument.
+     */
+    void copyRow(int row, double[] destination, int offset);
+
+    long getT(int row);
+
+    Integer getY(int row);
+
+    default Sample getSample(final int row) {
+
+        final Sample sample = new Sample(new double[this.getDimensions()], this.getY(row));
+        this.copyRow(row, sample.getX(), 0);
+        sample.setT(this.getT(row));
+        return sample;
+
+    }
+
+}
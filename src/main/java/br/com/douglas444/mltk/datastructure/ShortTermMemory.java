@@ -0,0 +1,386 @@
+package br.com.douglas444.mltk.datastructure;
+
+import java.util.AbstractList;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.function.Consumer;
+
+/** Bounded buffer of unexplained samples. Samples are kept in a ring of
+ * preallocated rows in arrival order, which must follow {@link Sample#getT()},
+ * so that expiring the samples older than the time window only moves the head
+ * of the ring. The rows live in primitive arrays, the values row by row in a
+ * single array and the times and labels in parallel arrays, with
+ * {@link DecisionModel#NO_LABEL} standing for a missing label, as in
+ * {@link SampleBatch}. Removed samples leave a hole that is reclaimed once the
+ * head reaches it, so no removal ever shifts the buffer; only when the ring is
+ * full of rows but not of samples are the live rows compacted towards the
+ * head, in O(capacity), before anything is evicted.
+ *
+ * The trigger receives a view over the buffered samples, each one built from
+ * its row the first time it is read. {@link #remove} recognizes the samples
+ * of the last view until the next call to {@link #add}. Algorithms that take a
+ * {@link SampleMatrix} can read the rows in place through
+ * {@link #matrixView()} instead, without building any sample.
+ */
+public class ShortTermMemory {
+
+    private static final double[] EMPTY = new double[0];
+
+    private final int dimensions;
+    private final long window;
+    private final int sizeThreshold;
+    private final long timeThreshold;
+    private final Consumer<List<Sample>> trigger;
+
+    private final double[] values;
+    private final long[] times;
+    private final int[] labels;
+    private final boolean[] alive;
+    private final IdentityHashMap<Sample, Integer> slotBySample;
+    private int[] matrixSlots;
+    private int matrixModifications;
+
+    private int head;
+    private int modifications;
+    private int occupied;
+    private int size;
+    private long lastTriggerTime;
+    private boolean empty;
+
+    /**
+     * @param capacity Maximum number of samples kept; when it holds that many,
+     * the oldest sample is evicted to make room for a new one.
+     * @param window Samples whose time is more than window units behind the
+     * time of the newest sample are expired.
+     * @param sizeThreshold The trigger fires once this many samples are buffered.
+     * @param timeThreshold The trigger also fires, if the buffer is not empty,
+     * once this many time units have passed since it last fired.
+     */
+    public ShortTermMemory(final int capacity, final int dimensions, final long window, final int sizeThreshold,
+                           final long timeThreshold, final Consumer<List<Sample>> trigger) {
+
+        if (capacity < 1 || dimensions < 1 || window < 0 || sizeThreshold < 1 || timeThreshold < 0) {
+            throw new IllegalArgumentException();
+        }
+
+        this.dimensions = dimensions;
+        this.window = window;
+        this.sizeThreshold = sizeThreshold;
+        this.timeThreshold = timeThreshold;
+        this.trigger = trigger;
+
+        this.values = new double[capacity * dimensions];
+        this.times = new long[capacity];
+        this.labels = new int[capacity];
+        this.alive = new boolean[capacity];
+        this.slotBySample = new IdentityHashMap<>();
+        this.matrixSlots = new int[0];
+
+        this.head = 0;
+        this.occupied = 0;
+        this.size = 0;
+        this.empty = true;
+
+    }
+
+    /** Copies the sample passed as argument into the buffer, expires the
+     * samples that fell out of the time window and fires the trigger if one of
+     * its conditions is met.
+     *
+     * @return Returns true if the trigger fired.
+     */
+    public boolean add(final Sample sample) {
+
+        if (sample.getX().length != this.dimensions) {
+            throw new IllegalArgumentException();
+        }
+
+        final long t = sample.getT();
+
+        if (this.occupied > 0 && t < this.times[(this.head + this.occupied - 1) % this.times.length]) {
+            throw new IllegalArgumentException("Samples must be added in time order");
+        }
+
+        this.slotBySample.clear();
+        ++this.modifications;
+
+        if (this.empty) {
+            this.lastTriggerTime = t;
+            this.empty = false;
+        }
+
+        this.expire(t);
+
+        if (this.occupied == this.times.length) {
+            if (this.size < this.times.length) {
+                this.compact();
+            } else {
+                this.pop();
+            }
+        }
+
+        final int slot = (this.head + this.occupied) % this.times.length;
+
+        System.arraycopy(sample.getX(), 0, this.values, slot * this.dimensions, this.dimensions);
+        this.times[slot] = t;
+        this.labels[slot] = sample.getY() == null ? DecisionModel.NO_LABEL : sample.getY();
+        this.alive[slot] = true;
+        ++this.occupied;
+        ++this.size;
+
+        if (this.size >= this.sizeThreshold || t - this.lastTriggerTime >= this.timeThreshold) {
+            this.lastTriggerTime = t;
+            this.trigger.accept(this.view());
+            return true;
+        }
+
+        return false;
+
+    }
+
+    /** Expires every sample whose time is more than the window behind the time
+     * passed as argument.
+     */
+    public void expire(final long now) {
+
+        while (this.occupied > 0 && (!this.alive[this.head] || now - this.times[this.head] > this.window)) {
+            this.pop();
+        }
+
+    }
+
+    /** Removes a sample handed out by the last {@link #view()}, usually
+     * because it was absorbed by a new cluster.
+     *
+     * @return Returns false if the sample is not buffered anymore, or was not
+     * handed out since the last call to {@link #add}.
+     */
+    public boolean remove(final Sample sample) {
+
+        final Integer slot = this.slotBySample.get(sample);
+        return slot != null && this.removeSlot(slot);
+
+    }
+
+    /** Removes the sample at the row passed as argument of the last
+     * {@link #matrixView()}.
+     *
+     * @return Returns false if the sample is not buffered anymore, or if
+     * {@link #add} was called since the view was taken.
+     */
+    public boolean removeRow(final int row) {
+
+        if (row < 0 || row >= this.matrixSlots.length) {
+            throw new IndexOutOfBoundsException();
+        }
+
+        return this.matrixModifications == this.modifications && this.removeSlot(this.matrixSlots[row]);
+
+    }
+
+    private boolean removeSlot(final int slot) {
+
+        if (!this.alive[slot]) {
+            return false;
+        }
+
+        this.alive[slot] = false;
+        --this.size;
+
+        while (this.occupied > 0 && !this.alive[this.head]) {
+            this.pop();
+        }
+
+        return true;
+
+    }
+
+    public void removeAll(final Collection<Sample> samples) {
+        samples.forEach(this::remove);
+    }
+
+    /** Returns a read-only view over the buffered samples, from the oldest to
+     * the newest. Each sample is built from its row the first time it is read
+     * and is the same object on later reads. The view must not be read after
+     * the next call to {@link #add}, which throws a
+     * {@link ConcurrentModificationException}.
+     */
+    public List<Sample> view() {
+
+        final int[] slots = this.liveSlots();
+        final Sample[] built = new Sample[this.size];
+        final int expectedModifications = this.modifications;
+
+        return new AbstractList<Sample>() {
+
+            @Override
+            public Sample get(final int index) {
+                if (built[index] == null) {
+                    if (modifications != expectedModifications) {
+                        throw new ConcurrentModificationException();
+                    }
+                    built[index] = toSample(slots[index]);
+                }
+                return built[index];
+            }
+
+            @Override
+            public int size() {
+                return slots.length;
+            }
+
+        };
+
+    }
+
+    /** Returns a read-only matrix over the buffered samples, from the oldest
+     * to the newest, whose rows are read in place from the buffer, for
+     * clustering algorithms that take a {@link SampleMatrix}. Its rows can be
+     * removed with {@link #removeRow}. The view must not be read after the
+     * next call to {@link #add}, which throws a
+     * {@link ConcurrentModificationException}.
+     */
+    public SampleMatrix matrixView() {
+
+        final int[] slots = this.liveSlots();
+        final int expectedModifications = this.modifications;
+
+        this.matrixSlots = slots;
+        this.matrixModifications = expectedModifications;
+
+        return new SampleMatrix() {
+
+            @Override
+            public int size() {
+                return slots.length;
+            }
+
+            @Override
+            public int getDimensions() {
+                return dimensions;
+            }
+
+            @Override
+            public double get(final int row, final int column) {
+                return values[this.slot(row) * dimensions + column];
+            }
+
+            @Override
+            public void copyRow(final int row, final double[] destination, final int offset) {
+                System.arraycopy(values, this.slot(row) * dimensions, destination, offset, dimensions);
+            }
+
+            @Override
+            public long getT(final int row) {
+                return times[this.slot(row)];
+            }
+
+            @Override
+            public Integer getY(final int row) {
+                final int label = labels[this.slot(row)];
+                return label == DecisionModel.NO_LABEL ? null : label;
+            }
+
+            private int slot(final int row) {
+                if (modifications != expectedModifications) {
+                    throw new ConcurrentModificationException();
+                }
+                return slots[row];
+            }
+
+        };
+
+    }
+
+    private int[] liveSlots() {
+
+        final int[] slots = new int[this.size];
+
+        for (int i = 0, j = 0; i < this.occupied; ++i) {
+            final int slot = (this.head + i) % this.times.length;
+            if (this.alive[slot]) {
+                slots[j++] = slot;
+            }
+        }
+
+        return slots;
+
+    }
+
+    /** Builds the sample of a slot with a single copy of its row, set as the
+     * values of the sample instead of being cloned by its constructor.
+     */
+    private Sample toSample(final int slot) {
+
+        final double[] x = new double[this.dimensions];
+        System.arraycopy(this.values, slot * this.dimensions, x, 0, this.dimensions);
+
+        final Sample sample = new Sample(EMPTY, this.labels[slot] == DecisionModel.NO_LABEL ? null : this.labels[slot]);
+        sample.setX(x);
+        sample.setT(this.times[slot]);
+        this.slotBySample.put(sample, slot);
+        return sample;
+
+    }
+
+    /** Moves the live rows next to each other from the head on, keeping their
+     * order, so the holes left by removed samples become free rows at the
+     * tail.
+     */
+    private void compact() {
+
+        final int capacity = this.times.length;
+        int written = 0;
+
+        for (int read = 0; read < this.occupied; ++read) {
+
+            final int from = (this.head + read) % capacity;
+
+            if (!this.alive[from]) {
+                continue;
+            }
+
+            final int to = (this.head + written++) % capacity;
+
+            if (from != to) {
+                System.arraycopy(this.values, from * this.dimensions, this.values, to * this.dimensions,
+                        this.dimensions);
+                this.times[to] = this.times[from];
+                this.labels[to] = this.labels[from];
+                this.alive[to] = true;
+                this.alive[from] = false;
+            }
+
+        }
+
+        this.occupied = written;
+
+    }
+
+    private void pop() {
+
+        if (this.alive[this.head]) {
+            this.alive[this.head] = false;
+            --this.size;
+        }
+
+        this.head = (this.head + 1) % this.times.length;
+        --this.occupied;
+
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int getCapacity() {
+        return this.times.length;
+    }
+
+}
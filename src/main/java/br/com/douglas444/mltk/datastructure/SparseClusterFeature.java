@@ -0,0 +1,128 @@
+package br.com.douglas444.mltk.datastructure;
+
+import java.util.List;
+
+/** Counterpart of {@link ClusterFeature} for sparse samples. A d × d matrix of
+ * squared sums is out of reach when d is in the tens of thousands, so only its
+ * trace, the sum of the squared norms of the samples, is kept; that is all
+ * the standard deviation needs. The linear sum stays dense, with its squared
+ * norm kept up to date, so adding a sample and measuring its distance to the
+ * centroid both cost time proportional to the non-zero values of the sample.
+ * The covariance matrix is not available.
+ */
+public class SparseClusterFeature implements ClusterSummary {
+
+    private final double[] ls;
+    private double lsSquaredNorm;
+    private double ss;
+    private int n;
+    private Integer label;
+
+    public SparseClusterFeature(final int dimensions) {
+        this(new double[dimensions], 0, 0, null);
+    }
+
+    /**
+     * @param ss Sum of the squared norms of the samples.
+     */
+    public SparseClusterFeature(final double[] ls, final double ss, final int n, final Integer label) {
+        this.ls = ls;
+        this.lsSquaredNorm = SparseSample.dot(ls, ls);
+        this.ss = ss;
+        this.n = n;
+        this.label = label;
+    }
+
+    public void add(final SparseSample sample) {
+
+        if (sample.getDimensions() != this.ls.length) {
+            throw new IllegalArgumentException();
+        }
+
+        this.lsSquaredNorm += 2 * sample.dot(this.ls) + sample.getSquaredNorm();
+        sample.addTo(this.ls, 1);
+        this.ss += sample.getSquaredNorm();
+        ++this.n;
+
+    }
+
+    /** Returns the squared distance between the sample passed as argument and
+     * the centroid, without computing the centroid.
+     */
+    public double calculateSquaredDistance(final SparseSample sample) {
+
+        if (this.n == 0) {
+            throw new IllegalStateException();
+        }
+
+        return Math.max(0, sample.getSquaredNorm()
+                - 2 * sample.dot(this.ls) / this.n
+                + this.lsSquaredNorm / ((double) this.n * this.n));
+
+    }
+
+    @Override
+    public Sample calculateCentroid() {
+
+        final double[] x = this.ls.clone();
+        for (int i = 0; i < x.length; ++i) {
+            x[i] /= this.n;
+        }
+
+        return new Sample(x, this.label);
+
+    }
+
+    @Override
+    public double calculateStandardDeviation() {
+        return Math.sqrt(Math.max(0, this.ss / this.n - this.lsSquaredNorm / ((double) this.n * this.n)));
+    }
+
+    public static SparseClusterFeature calculateClosestMicroCluster(final SparseSample sample,
+                                                                    final List<SparseClusterFeature> clusterFeatures) {
+
+        if (clusterFeatures.isEmpty()) {
+            throw new IllegalArgumentException();
+        }
+
+        SparseClusterFeature closest = clusterFeatures.get(0);
+        double minimum = closest.calculateSquaredDistance(sample);
+
+        for (final SparseClusterFeature clusterFeature : clusterFeatures) {
+            final double distance = clusterFeature.calculateSquaredDistance(sample);
+            if (distance < minimum) {
+                minimum = distance;
+                closest = clusterFeature;
+            }
+        }
+
+        return closest;
+
+    }
+
+    public SparseClusterFeature copy() {
+        return new SparseClusterFeature(this.ls.clone(), this.ss, this.n, this.label);
+    }
+
+    public double[] getLs() {
+        return ls;
+    }
+
+    public double getSs() {
+        return ss;
+    }
+
+    public int getN() {
+        return n;
+    }
+
+    public Integer getLabel() {
+        return label;
+    }
+
+    public SparseClusterFeature setLabel(Integer label) {
+        this.label = label;
+        return this;
+    }
+
+}
@@ -0,0 +1,224 @@
+package br.com.douglas444.mltk.datastructure;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/** Sample that only keeps its non-zero values, as an array of strictly
+ * increasing dimension indices and an array of the values at those indices.
+ * The squared norm is computed once, so a squared distance to another vector
+ * whose squared norm is known costs a single dot product,
+ * ‖a‖² + ‖c‖² − 2a·c, proportional to the number of non-zero values instead
+ * of the number of dimensions.
+ */
+public class SparseSample {
+
+    private final int dimensions;
+    private final int[] indices;
+    private final double[] values;
+    private final double squaredNorm;
+    private long t;
+    private Integer y;
+
+    public SparseSample(final int dimensions, final int[] indices, final double[] values, final Integer y) {
+        this(0, dimensions, indices, values, y);
+    }
+
+    public SparseSample(final long t, final int dimensions, final int[] indices, final double[] values,
+                        final Integer y) {
+
+        checkIndices(dimensions, indices, values);
+
+        this.t = t;
+        this.dimensions = dimensions;
+        this.indices = indices.clone();
+        this.values = values.clone();
+        this.squaredNorm = dot(this.values, this.values);
+        this.y = y;
+
+    }
+
+    /** Keeps the non-zero values of the dense sample passed as argument.
+     */
+    public static SparseSample fromSample(final Sample sample) {
+
+        final double[] x = sample.getX();
+        final List<Integer> nonZero = new ArrayList<>();
+
+        for (int i = 0; i < x.length; ++i) {
+            if (x[i] != 0) {
+                nonZero.add(i);
+            }
+        }
+
+        final int[] indices = new int[nonZero.size()];
+        final double[] values = new double[nonZero.size()];
+
+        for (int i = 0; i < indices.length; ++i) {
+            indices[i] = nonZero.get(i);
+            values[i] = x[indices[i]];
+        }
+
+        return new SparseSample(sample.getT(), x.length, indices, values, sample.getY());
+
+    }
+
+    public Sample toSample() {
+
+        final Sample sample = new Sample(new double[this.dimensions], this.y);
+        this.addTo(sample.getX(), 1);
+        sample.setT(this.t);
+        return sample;
+
+    }
+
+    public double dot(final SparseSample sample) {
+        return dot(this.indices, this.values, 0, this.indices.length,
+                sample.indices, sample.values, 0, sample.indices.length);
+    }
+
+    public double dot(final double[] dense) {
+
+        double sum = 0;
+        for (int i = 0; i < this.indices.length; ++i) {
+            sum += this.values[i] * dense[this.indices[i]];
+        }
+        return sum;
+
+    }
+
+    public double squaredDistance(final SparseSample sample) {
+        return Math.max(0, this.squaredNorm + sample.squaredNorm - 2 * this.dot(sample));
+    }
+
+    /** Returns the squared distance to the dense vector passed as argument,
+     * given its squared norm, reading only the non-zero dimensions of this
+     * sample.
+     */
+    public double squaredDistance(final double[] dense, final double denseSquaredNorm) {
+        return Math.max(0, this.squaredNorm + denseSquaredNorm - 2 * this.dot(dense));
+    }
+
+    public double distance(final SparseSample sample) {
+        return Math.sqrt(this.squaredDistance(sample));
+    }
+
+    /** Adds the values of this sample, multiplied by the factor passed as
+     * argument, to the dense vector passed as argument.
+     */
+    public void addTo(final double[] dense, final double factor) {
+
+        for (int i = 0; i < this.indices.length; ++i) {
+            dense[this.indices[i]] += factor * this.values[i];
+        }
+
+    }
+
+    static void checkIndices(final int dimensions, final int[] indices, final double[] values) {
+
+        if (dimensions < 1 || indices.length != values.length) {
+            throw new IllegalArgumentException();
+        }
+
+        for (int i = 0; i < indices.length; ++i) {
+            if (indices[i] < 0 || indices[i] >= dimensions || (i > 0 && indices[i] <= indices[i - 1])) {
+                throw new IllegalArgumentException("Indices must be increasing and within the dimensions");
+            }
+        }
+
+    }
+
+    static double dot(final double[] a, final double[] b) {
+
+        double sum = 0;
+        for (int i = 0; i < a.length; ++i) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+
+    }
+
+    /** Dot product of two sparse vectors given as ranges of index and value
+     * arrays, merging the two sorted index ranges.
+     */
+    static double dot(final int[] aIndices, final double[] aValues, final int aFrom, final int aTo,
+                      final int[] bIndices, final double[] bValues, final int bFrom, final int bTo) {
+
+        double sum = 0;
+        int i = aFrom;
+        int j = bFrom;
+
+        while (i < aTo && j < bTo) {
+            if (aIndices[i] < bIndices[j]) {
+                ++i;
+            } else if (aIndices[i] > bIndices[j]) {
+                ++j;
+            } else {
+                sum += aValues[i++] * bValues[j++];
+            }
+        }
+
+        return sum;
+
+    }
+
+    public int getDimensions() {
+        return dimensions;
+    }
+
+    /** Returns the number of non-zero values.
+     */
+    public int size() {
+        return this.indices.length;
+    }
+
+    public int[] getIndices() {
+        return indices;
+    }
+
+    public double[] getValues() {
+        return values;
+    }
+
+    public double getSquaredNorm() {
+        return squaredNorm;
+    }
+
+    public long getT() {
+        return t;
+    }
+
+    public void setT(long t) {
+        this.t = t;
+    }
+
+    public Integer getY() {
+        return y;
+    }
+
+    public void setY(Integer y) {
+        this.y = y;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        SparseSample that = (SparseSample) o;
+        return dimensions == that.dimensions &&
+                t == that.t &&
+                Arrays.equals(indices, that.indices) &&
+                Arrays.equals(values, that.values) &&
+                Objects.equals(y, that.y);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Objects.hash(this.dimensions, this.t, this.y);
+        result = 31 * result + Arrays.hashCode(this.indices);
+        result = 31 * result + Arrays.hashCode(this.values);
+        return result;
+    }
+
+}
@@ -0,0 +1,173 @@
+package br.com.douglas444.mltk.datastructure;
+
+import java.util.Arrays;
+
+/** Growable block of sparse samples in compressed row form: the indices and
+ * values of every row one after the other in two arrays, the row starts in a
+ * third one, and the squared norm of each row cached next to its time and
+ * label. As a {@link SampleMatrix} rows can be read densely, but the k-means
+ * family detects this class and works on the non-zero values only.
+ */
+public class SparseSampleMatrix implements SampleMatrix {
+
+    private final int dimensions;
+    private int[] rowStarts;
+    private int[] indices;
+    private double[] values;
+    private double[] squaredNorms;
+    private long[] t;
+    private int[] y;
+    private int size;
+
+    public SparseSampleMatrix(final int dimensions) {
+
+        if (dimensions < 1) {
+            throw new IllegalArgumentException();
+        }
+
+        this.dimensions = dimensions;
+        this.rowStarts = new int[17];
+        this.indices = new int[64];
+        this.values = new double[64];
+        this.squaredNorms = new double[16];
+        this.t = new long[16];
+        this.y = new int[16];
+        this.size = 0;
+
+    }
+
+    public int append(final SparseSample sample) {
+
+        if (sample.getDimensions() != this.dimensions) {
+            throw new IllegalArgumentException();
+        }
+
+        return this.append(sample.getT(), sample.getIndices(), sample.getValues(), sample.getY());
+
+    }
+
+    /** Appends a row given by its increasing dimension indices and the values
+     * at those indices.
+     *
+     * @return Returns the row of the sample.
+     */
+    public int append(final long t, final int[] indices, final double[] values, final Integer y) {
+
+        SparseSample.checkIndices(this.dimensions, indices, values);
+
+        if (this.size == this.t.length) {
+            final int capacity = this.t.length * 2;
+            this.rowStarts = Arrays.copyOf(this.rowStarts, capacity + 1);
+            this.squaredNorms = Arrays.copyOf(this.squaredNorms, capacity);
+            this.t = Arrays.copyOf(this.t, capacity);
+            this.y = Arrays.copyOf(this.y, capacity);
+        }
+
+        final int start = this.rowStarts[this.size];
+        final int end = start + indices.length;
+
+        if (end > this.indices.length) {
+            final int capacity = Math.max(end, this.indices.length * 2);
+            this.indices = Arrays.copyOf(this.indices, capacity);
+            this.values = Arrays.copyOf(this.values, capacity);
+        }
+
+        System.arraycopy(indices, 0, this.indices, start, indices.length);
+        System.arraycopy(values, 0, this.values, start, values.length);
+
+        this.rowStarts[this.size + 1] = end;
+        this.squaredNorms[this.size] = SparseSample.dot(values, values);
+        this.t[this.size] = t;
+        this.y[this.size] = y == null ? DecisionModel.NO_LABEL : y;
+
+        return this.size++;
+
+    }
+
+    /** Returns the dot product of a row with the dense vector stored in the
+     * array passed as argument from the offset on, reading only the non-zero
+     * values of the row.
+     */
+    public double dot(final int row, final double[] dense, final int offset) {
+
+        double sum = 0;
+        for (int i = this.rowStarts[row]; i < this.rowStarts[row + 1]; ++i) {
+            sum += this.values[i] * dense[offset + this.indices[i]];
+        }
+        return sum;
+
+    }
+
+    /** Adds the values of a row, multiplied by the factor passed as argument,
+     * to the dense vector stored in the array passed as argument from the
+     * offset on.
+     */
+    public void addTo(final int row, final double[] dense, final int offset, final double factor) {
+
+        for (int i = this.rowStarts[row]; i < this.rowStarts[row + 1]; ++i) {
+            dense[offset + this.indices[i]] += factor * this.values[i];
+        }
+
+    }
+
+    public SparseSample getSparseSample(final int row) {
+
+        final int start = this.rowStarts[row];
+        final int end = this.rowStarts[row + 1];
+
+        return new SparseSample(this.t[row], this.dimensions,
+                Arrays.copyOfRange(this.indices, start, end),
+                Arrays.copyOfRange(this.values, start, end),
+                this.getY(row));
+
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    @Override
+    public int getDimensions() {
+        return this.dimensions;
+    }
+
+    @Override
+    public double get(final int row, final int column) {
+
+        final int start = this.rowStarts[row];
+        final int position = Arrays.binarySearch(this.indices, start, this.rowStarts[row + 1], column);
+
+        return position < 0 ? 0 : this.values[position];
+
+    }
+
+    @Override
+    public void copyRow(final int row, final double[] destination, final int offset) {
+
+        Arrays.fill(destination, offset, offset + this.dimensions, 0);
+        this.addTo(row, destination, offset, 1);
+
+    }
+
+    @Override
+    public long getT(final int row) {
+        return this.t[row];
+    }
+
+    @Override
+    public Integer getY(final int row) {
+        return this.y[row] == DecisionModel.NO_LABEL ? null : this.y[row];
+    }
+
+    public double getSquaredNorm(final int row) {
+        return this.squaredNorms[row];
+    }
+
+    /** Returns the number of non-zero values of a row.
+     */
+    public int getNonZeros(final int row) {
+        return this.rowStarts[row + 1] - this.rowStarts[row];
+    }
+
+}
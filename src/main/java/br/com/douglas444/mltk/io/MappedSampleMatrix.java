@@ -0,0 +1,142 @@
+package br.com.douglas444.mltk.io;
+
+import br.com.douglas444.mltk.datastructure.SampleMatrix;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/** Zero-copy view over a binary sample file written by
+ * {@link SampleFileWriter}. The records are memory-mapped, in chunks of at most
+ * {@link #CHUNK_SIZE} bytes since a single mapping cannot exceed 2 GB, so
+ * opening a file only reads its header and dictionary; the operating system
+ * pages the records in as rows are accessed.
+ */
+public class MappedSampleMatrix implements SampleMatrix, Closeable {
+
+    public static final int CHUNK_SIZE = 1 << 30;
+
+    private final FileChannel channel;
+    private final int size;
+    private final int dimensions;
+    private final boolean singlePrecision;
+    private final int recordSize;
+    private final int rowsPerChunk;
+    private final int[] labels;
+    private final ByteBuffer[] chunks;
+
+    public MappedSampleMatrix(final Path path) throws IOException {
+
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+
+        try {
+
+            final SampleFileFormat.Header header = SampleFileFormat.Header.read(this.channel);
+
+            if (header.size > Integer.MAX_VALUE) {
+                throw new IOException("Sample file has too many samples");
+            }
+
+            this.size = (int) header.size;
+            this.dimensions = header.dimensions;
+            this.singlePrecision = header.singlePrecision;
+            this.recordSize = header.recordSize;
+            this.labels = header.labels;
+
+            this.rowsPerChunk = Math.max(1, CHUNK_SIZE / this.recordSize);
+            this.chunks = new ByteBuffer[(this.size + this.rowsPerChunk - 1) / this.rowsPerChunk];
+
+            for (int i = 0; i < this.chunks.length; ++i) {
+                final long firstRow = (long) i * this.rowsPerChunk;
+                final long rows = Math.min(this.rowsPerChunk, this.size - firstRow);
+                this.chunks[i] = this.channel
+                        .map(FileChannel.MapMode.READ_ONLY,
+                                SampleFileFormat.HEADER_SIZE + firstRow * this.recordSize,
+                                rows * this.recordSize)
+                        .order(ByteOrder.LITTLE_ENDIAN);
+            }
+
+        } catch (IOException | RuntimeException e) {
+            this.channel.close();
+            throw e;
+        }
+
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    @Override
+    public int getDimensions() {
+        return this.dimensions;
+    }
+
+    @Override
+    public double get(final int row, final int column) {
+
+        final ByteBuffer chunk = this.chunks[row / this.rowsPerChunk];
+        final int record = (row % this.rowsPerChunk) * this.recordSize;
+
+        if (this.singlePrecision) {
+            return chunk.getFloat(record + SampleFileFormat.X_OFFSET + column * Float.BYTES);
+        } else {
+            return chunk.getDouble(record + SampleFileFormat.X_OFFSET + column * Double.BYTES);
+        }
+
+    }
+
+    @Override
+    public void copyRow(final int row, final double[] destination, final int offset) {
+
+        final ByteBuffer chunk = this.chunks[row / this.rowsPerChunk];
+        final int values = (row % this.rowsPerChunk) * this.recordSize + SampleFileFormat.X_OFFSET;
+
+        for (int i = 0; i < this.dimensions; ++i) {
+            if (this.singlePrecision) {
+                destination[offset + i] = chunk.getFloat(values + i * Float.BYTES);
+            } else {
+                destination[offset + i] = chunk.getDouble(values + i * Double.BYTES);
+            }
+        }
+
+    }
+
+    @Override
+    public long getT(final int row) {
+        final ByteBuffer chunk = this.chunks[row / this.rowsPerChunk];
+        return chunk.getLong((row % this.rowsPerChunk) * this.recordSize + SampleFileFormat.T_OFFSET);
+    }
+
+    @Override
+    public Integer getY(final int row) {
+
+        final ByteBuffer chunk = this.chunks[row / this.rowsPerChunk];
+        final int index = chunk.getInt((row % this.rowsPerChunk) * this.recordSize + SampleFileFormat.Y_OFFSET);
+
+        if (index == SampleFileFormat.NO_LABEL) {
+            return null;
+        }
+
+        return this.labels[index];
+
+    }
+
+    public boolean isSinglePrecision() {
+        return singlePrecision;
+    }
+
+    /** Closes the file. The mappings themselves are released by the garbage
+     * collector, so rows must not be accessed after this call.
+     */
+    @Override
+    public void close() throws IOException {
+        this.channel.close();
+    }
+
+}
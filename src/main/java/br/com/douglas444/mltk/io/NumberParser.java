@@ -0,0 +1,174 @@
+package br.com.douglas444.mltk.io;
+
+import java.nio.charset.StandardCharsets;
+
+/** Parses decimal numbers straight from ASCII bytes, without creating a
+ * String. Numbers with at most 15 significant digits and a small exponent,
+ * which covers the usual dataset values, are converted exactly with a single
+ * multiplication or division by a power of ten; anything else falls back to
+ * {@link Double#parseDouble(String)}.
+ *
+ * Parsing stops at the first byte that cannot be part of the number, and the
+ * position of that byte is kept so that the caller can continue from there.
+ */
+final class NumberParser {
+
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+            1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private static final int MAX_DIGITS = 15;
+
+    private int position;
+
+    /** Parses the number starting at the position passed as argument.
+     *
+     * @return Returns the number, or NaN if no number starts at that position,
+     * in which case {@link #getPosition()} is left at from.
+     */
+    double parseDouble(final byte[] bytes, final int from, final int to) {
+
+        int i = from;
+        boolean negative = false;
+
+        if (i < to && (bytes[i] == '-' || bytes[i] == '+')) {
+            negative = bytes[i] == '-';
+            ++i;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int exponent = 0;
+        boolean anyDigit = false;
+
+        while (i < to && bytes[i] >= '0' && bytes[i] <= '9') {
+            anyDigit = true;
+            if (mantissa != 0 || bytes[i] != '0') {
+                ++digits;
+            }
+            mantissa = mantissa * 10 + (bytes[i] - '0');
+            ++i;
+        }
+
+        if (i < to && bytes[i] == '.') {
+            ++i;
+            while (i < to && bytes[i] >= '0' && bytes[i] <= '9') {
+                anyDigit = true;
+                if (mantissa != 0 || bytes[i] != '0') {
+                    ++digits;
+                }
+                mantissa = mantissa * 10 + (bytes[i] - '0');
+                --exponent;
+                ++i;
+            }
+        }
+
+        if (!anyDigit) {
+            this.position = from;
+            return Double.NaN;
+        }
+
+        if (i < to && (bytes[i] == 'e' || bytes[i] == 'E')) {
+
+            int j = i + 1;
+            boolean negativeExponent = false;
+
+            if (j < to && (bytes[j] == '-' || bytes[j] == '+')) {
+                negativeExponent = bytes[j] == '-';
+                ++j;
+            }
+
+            int value = 0;
+            final int firstExponentDigit = j;
+
+            while (j < to && bytes[j] >= '0' && bytes[j] <= '9') {
+                value = Math.min(value * 10 + (bytes[j] - '0'), 100000);
+                ++j;
+            }
+
+            if (j > firstExponentDigit) {
+                exponent += negativeExponent ? -value : value;
+                i = j;
+            }
+
+        }
+
+        this.position = i;
+
+        if (digits > MAX_DIGITS || exponent <= -POWERS_OF_TEN.length || exponent >= POWERS_OF_TEN.length) {
+            return parseToken(bytes, from, i);
+        }
+
+        double value = mantissa;
+
+        if (exponent < 0) {
+            value /= POWERS_OF_TEN[-exponent];
+        } else {
+            value *= POWERS_OF_TEN[exponent];
+        }
+
+        return negative ? -value : value;
+
+    }
+
+    int getPosition() {
+        return position;
+    }
+
+    /** Parses a whole token with {@link Double#parseDouble(String)}, reading
+     * "?", the ARFF missing value, as NaN.
+     */
+    static double parseToken(final byte[] bytes, final int from, final int to) {
+
+        final String token = new String(bytes, from, to - from, StandardCharsets.US_ASCII).trim();
+
+        if (token.equals("?")) {
+            return Double.NaN;
+        }
+
+        return Double.parseDouble(token);
+
+    }
+
+    static boolean isInteger(final byte[] bytes, final int from, final int to) {
+
+        int i = from;
+
+        if (i < to && bytes[i] == '-') {
+            ++i;
+        }
+
+        if (i == to || to - i > 9) {
+            return false;
+        }
+
+        for (; i < to; ++i) {
+            if (bytes[i] < '0' || bytes[i] > '9') {
+                return false;
+            }
+        }
+
+        return true;
+
+    }
+
+    static int parseInteger(final byte[] bytes, final int from, final int to) {
+
+        int i = from;
+        final boolean negative = bytes[i] == '-';
+
+        if (negative) {
+            ++i;
+        }
+
+        int value = 0;
+        for (; i < to; ++i) {
+            value = value * 10 + (bytes[i] - '0');
+        }
+
+        return negative ? -value : value;
+
+    }
+
+}
@@ -0,0 +1,132 @@
+package br.com.douglas444.mltk.io;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/** Layout of the binary sample file written by {@link SampleFileWriter} and
+ * read by {@link MappedSampleMatrix}. Every value is little-endian.
+ *
+ * The file starts with a fixed-size header, followed by one record per sample
+ * and by the label dictionary. A record holds the time of the sample, the index
+ * of its label in the dictionary (-1 if the sample has no label), four bytes of
+ * padding and the values of the sample, either as doubles or as floats, padded
+ * so that every record starts at a multiple of eight bytes.
+ */
+final class SampleFileFormat {
+
+    static final int MAGIC = 0x4B544C4D;
+    static final int VERSION = 1;
+    static final int FLAG_SINGLE_PRECISION = 1;
+
+    static final int HEADER_SIZE = 64;
+    static final int MAGIC_OFFSET = 0;
+    static final int VERSION_OFFSET = 4;
+    static final int FLAGS_OFFSET = 8;
+    static final int DIMENSIONS_OFFSET = 12;
+    static final int SIZE_OFFSET = 16;
+    static final int DICTIONARY_OFFSET_OFFSET = 24;
+    static final int DICTIONARY_SIZE_OFFSET = 32;
+    static final int RECORD_SIZE_OFFSET = 36;
+
+    static final int T_OFFSET = 0;
+    static final int Y_OFFSET = 8;
+    static final int X_OFFSET = 16;
+
+    static final int NO_LABEL = -1;
+
+    private SampleFileFormat() {
+    }
+
+    static int calculateRecordSize(final int dimensions, final boolean singlePrecision) {
+        final int valuesSize = dimensions * (singlePrecision ? Float.BYTES : Double.BYTES);
+        return X_OFFSET + ((valuesSize + 7) & ~7);
+    }
+
+    static ByteBuffer read(final FileChannel channel, final long position, final int length) throws IOException {
+
+        final ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of sample file");
+            }
+        }
+
+        ((Buffer) buffer).flip();
+        return buffer;
+
+    }
+
+    static final class Header {
+
+        final long size;
+        final int dimensions;
+        final boolean singlePrecision;
+        final int recordSize;
+        final int[] labels;
+
+        private Header(final long size, final int dimensions, final boolean singlePrecision, final int recordSize,
+                       final int[] labels) {
+            this.size = size;
+            this.dimensions = dimensions;
+            this.singlePrecision = singlePrecision;
+            this.recordSize = recordSize;
+            this.labels = labels;
+        }
+
+        /** Reads and checks the header and the label dictionary of a sample file.
+         */
+        static Header read(final FileChannel channel) throws IOException {
+
+            final ByteBuffer header = SampleFileFormat.read(channel, 0, HEADER_SIZE);
+
+            if (header.getInt(MAGIC_OFFSET) != MAGIC) {
+                throw new IOException("Not a sample file or the file was not closed by its writer");
+            }
+
+            if (header.getInt(VERSION_OFFSET) != VERSION) {
+                throw new IOException("Unsupported sample file version");
+            }
+
+            final long size = header.getLong(SIZE_OFFSET);
+            final int dimensions = header.getInt(DIMENSIONS_OFFSET);
+            final boolean singlePrecision = (header.getInt(FLAGS_OFFSET) & FLAG_SINGLE_PRECISION) != 0;
+            final int recordSize = header.getInt(RECORD_SIZE_OFFSET);
+            final long dictionaryOffset = header.getLong(DICTIONARY_OFFSET_OFFSET);
+            final int dictionarySize = header.getInt(DICTIONARY_SIZE_OFFSET);
+
+            if (dimensions < 1 || dimensions > (Integer.MAX_VALUE - X_OFFSET - 7) / Double.BYTES) {
+                throw new IOException("Invalid number of dimensions in sample file: " + dimensions);
+            }
+
+            if (recordSize != calculateRecordSize(dimensions, singlePrecision)) {
+                throw new IOException("Invalid record size in sample file: " + recordSize);
+            }
+
+            if (size < 0 || size > (Long.MAX_VALUE - HEADER_SIZE) / recordSize) {
+                throw new IOException("Invalid number of samples in sample file: " + size);
+            }
+
+            if (dictionarySize < 0 || dictionarySize > Integer.MAX_VALUE / Integer.BYTES
+                    || dictionaryOffset < HEADER_SIZE + size * recordSize) {
+                throw new IOException("Invalid label dictionary in sample file");
+            }
+
+            final ByteBuffer dictionary = SampleFileFormat.read(channel, dictionaryOffset,
+                    dictionarySize * Integer.BYTES);
+
+            final int[] labels = new int[dictionarySize];
+            for (int i = 0; i < dictionarySize; ++i) {
+                labels[i] = dictionary.getInt(i * Integer.BYTES);
+            }
+
+            return new Header(size, dimensions, singlePrecision, recordSize, labels);
+
+        }
+
+    }
+
+}
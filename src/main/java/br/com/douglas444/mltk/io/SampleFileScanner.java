@@ -0,0 +1,169 @@
+package br.com.douglas444.mltk.io;
+
+import br.com.douglas444.mltk.datastructure.DecisionModel;
+import br.com.douglas444.mltk.datastructure.SampleBatch;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/** Sequential reader of a binary sample file written by
+ * {@link SampleFileWriter}, for passes over files larger than the memory. The
+ * file is read in chunks of a fixed number of rows into one of two
+ * {@link SampleBatch}es; while the consumer works on one chunk, the next one is
+ * read into the other batch by a background thread, so that the disk and the
+ * processor are kept busy at the same time.
+ */
+public class SampleFileScanner implements Closeable {
+
+    private final FileChannel channel;
+    private final SampleFileFormat.Header header;
+    private final int chunkRows;
+    private final ByteBuffer[] buffers;
+    private final SampleBatch[] batches;
+    private final ExecutorService prefetcher;
+
+    public SampleFileScanner(final Path path, final int chunkRows) throws IOException {
+
+        if (chunkRows < 1) {
+            throw new IllegalArgumentException();
+        }
+
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+
+        try {
+            this.header = SampleFileFormat.Header.read(this.channel);
+        } catch (IOException | RuntimeException e) {
+            this.channel.close();
+            throw e;
+        }
+
+        this.chunkRows = Math.min(chunkRows, Math.max(1, Integer.MAX_VALUE / this.header.recordSize));
+        this.buffers = new ByteBuffer[2];
+        this.batches = new SampleBatch[2];
+
+        for (int i = 0; i < 2; ++i) {
+            this.buffers[i] = ByteBuffer.allocateDirect(this.chunkRows * this.header.recordSize)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            this.batches[i] = new SampleBatch(this.chunkRows, this.header.dimensions);
+        }
+
+        this.prefetcher = Executors.newSingleThreadExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "mltk-sample-prefetcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+    }
+
+    /** Makes one sequential pass over the file, handing each chunk to the
+     * consumer in order. A chunk is only valid until the consumer returns.
+     */
+    public void forEachChunk(final Consumer<SampleBatch> consumer) throws IOException {
+
+        long row = 0;
+        int current = 0;
+        Future<SampleBatch> next = this.header.size > 0 ? this.prefetch(0, current) : null;
+
+        while (next != null) {
+
+            final SampleBatch batch = this.await(next);
+            row += batch.size();
+            next = row < this.header.size ? this.prefetch(row, 1 - current) : null;
+
+            consumer.accept(batch);
+            current = 1 - current;
+
+        }
+
+    }
+
+    public long size() {
+        return this.header.size;
+    }
+
+    public int getDimensions() {
+        return this.header.dimensions;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.prefetcher.shutdownNow();
+        this.channel.close();
+    }
+
+    private Future<SampleBatch> prefetch(final long firstRow, final int slot) {
+        return this.prefetcher.submit(() -> this.load(firstRow, slot));
+    }
+
+    private SampleBatch load(final long firstRow, final int slot) throws IOException {
+
+        final ByteBuffer buffer = this.buffers[slot];
+        final SampleBatch batch = this.batches[slot];
+        final int recordSize = this.header.recordSize;
+        final int dimensions = this.header.dimensions;
+        final int rows = (int) Math.min(this.chunkRows, this.header.size - firstRow);
+        final long position = SampleFileFormat.HEADER_SIZE + firstRow * recordSize;
+
+        ((Buffer) buffer).clear();
+        ((Buffer) buffer).limit(rows * recordSize);
+
+        while (buffer.hasRemaining()) {
+            if (this.channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of sample file");
+            }
+        }
+
+        batch.clear();
+        final double[] x = batch.getX();
+
+        for (int i = 0; i < rows; ++i) {
+
+            final int record = i * recordSize;
+            final int label = buffer.getInt(record + SampleFileFormat.Y_OFFSET);
+            final int values = record + SampleFileFormat.X_OFFSET;
+            final int row = batch.append(buffer.getLong(record + SampleFileFormat.T_OFFSET),
+                    label == SampleFileFormat.NO_LABEL ? DecisionModel.NO_LABEL : this.header.labels[label]);
+
+            for (int l = 0; l < dimensions; ++l) {
+                x[row * dimensions + l] = this.header.singlePrecision
+                        ? buffer.getFloat(values + l * Float.BYTES)
+                        : buffer.getDouble(values + l * Double.BYTES);
+            }
+
+        }
+
+        return batch;
+
+    }
+
+    private SampleBatch await(final Future<SampleBatch> future) throws IOException {
+
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+
+    }
+
+}
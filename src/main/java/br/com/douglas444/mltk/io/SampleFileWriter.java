@@ -0,0 +1,176 @@
+package br.com.douglas444.mltk.io;
+
+import br.com.douglas444.mltk.datastructure.Sample;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/** Streams samples to a binary sample file, see {@link SampleFileFormat}. The
+ * number of samples and the label dictionary are only known at the end, so
+ * the header is written by {@link #close()}.
+ */
+public class SampleFileWriter implements Closeable {
+
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final FileChannel channel;
+    private final int dimensions;
+    private final boolean singlePrecision;
+    private final int recordSize;
+    private final ByteBuffer buffer;
+
+    private final HashMap<Integer, Integer> indexByLabel;
+    private final List<Integer> labels;
+    private long size;
+
+    public SampleFileWriter(final Path path, final int dimensions) throws IOException {
+        this(path, dimensions, false);
+    }
+
+    /**
+     * @param singlePrecision If true, the values are stored as floats, halving
+     * the size of the file at the cost of precision.
+     */
+    public SampleFileWriter(final Path path, final int dimensions, final boolean singlePrecision)
+            throws IOException {
+
+        if (dimensions < 1) {
+            throw new IllegalArgumentException();
+        }
+
+        this.dimensions = dimensions;
+        this.singlePrecision = singlePrecision;
+        this.recordSize = SampleFileFormat.calculateRecordSize(dimensions, singlePrecision);
+
+        final int records = Math.max(1, BUFFER_SIZE / this.recordSize);
+        this.buffer = ByteBuffer.allocateDirect(records * this.recordSize).order(ByteOrder.LITTLE_ENDIAN);
+
+        this.indexByLabel = new HashMap<>();
+        this.labels = new ArrayList<>();
+        this.size = 0;
+
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        this.channel.position(SampleFileFormat.HEADER_SIZE);
+
+    }
+
+    public void write(final Sample sample) throws IOException {
+        this.write(sample.getT(), sample.getX(), sample.getY());
+    }
+
+    public void write(final long t, final double[] x, final Integer y) throws IOException {
+
+        if (x.length != this.dimensions) {
+            throw new IllegalArgumentException();
+        }
+
+        if (this.buffer.remaining() < this.recordSize) {
+            this.flush();
+        }
+
+        final int record = this.buffer.position();
+
+        this.buffer.putLong(record + SampleFileFormat.T_OFFSET, t);
+        this.buffer.putInt(record + SampleFileFormat.Y_OFFSET, this.indexOf(y));
+        this.buffer.putInt(record + SampleFileFormat.Y_OFFSET + Integer.BYTES, 0);
+
+        for (int i = 0; i < this.dimensions; ++i) {
+            if (this.singlePrecision) {
+                this.buffer.putFloat(record + SampleFileFormat.X_OFFSET + i * Float.BYTES, (float) x[i]);
+            } else {
+                this.buffer.putDouble(record + SampleFileFormat.X_OFFSET + i * Double.BYTES, x[i]);
+            }
+        }
+
+        ((Buffer) this.buffer).position(record + this.recordSize);
+        ++this.size;
+
+    }
+
+    /** Writes the pending records, the label dictionary and the header, and
+     * closes the file.
+     */
+    @Override
+    public void close() throws IOException {
+
+        try {
+
+            this.flush();
+
+            final long dictionaryOffset = SampleFileFormat.HEADER_SIZE + this.size * this.recordSize;
+            final ByteBuffer dictionary = ByteBuffer.allocate(this.labels.size() * Integer.BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            this.labels.forEach(dictionary::putInt);
+            ((Buffer) dictionary).flip();
+            this.writeFully(dictionary, dictionaryOffset);
+
+            final ByteBuffer header = ByteBuffer.allocate(SampleFileFormat.HEADER_SIZE)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(SampleFileFormat.MAGIC_OFFSET, SampleFileFormat.MAGIC);
+            header.putInt(SampleFileFormat.VERSION_OFFSET, SampleFileFormat.VERSION);
+            header.putInt(SampleFileFormat.FLAGS_OFFSET,
+                    this.singlePrecision ? SampleFileFormat.FLAG_SINGLE_PRECISION : 0);
+            header.putInt(SampleFileFormat.DIMENSIONS_OFFSET, this.dimensions);
+            header.putLong(SampleFileFormat.SIZE_OFFSET, this.size);
+            header.putLong(SampleFileFormat.DICTIONARY_OFFSET_OFFSET, dictionaryOffset);
+            header.putInt(SampleFileFormat.DICTIONARY_SIZE_OFFSET, this.labels.size());
+            header.putInt(SampleFileFormat.RECORD_SIZE_OFFSET, this.recordSize);
+            this.writeFully(header, 0);
+
+        } finally {
+            this.channel.close();
+        }
+
+    }
+
+    private void flush() throws IOException {
+
+        ((Buffer) this.buffer).flip();
+        while (this.buffer.hasRemaining()) {
+            this.channel.write(this.buffer);
+        }
+        ((Buffer) this.buffer).clear();
+
+    }
+
+    private void writeFully(final ByteBuffer source, long position) throws IOException {
+
+        while (source.hasRemaining()) {
+            position += this.channel.write(source, position);
+        }
+
+    }
+
+    private int indexOf(final Integer label) {
+
+        if (label == null) {
+            return SampleFileFormat.NO_LABEL;
+        }
+
+        Integer index = this.indexByLabel.get(label);
+
+        if (index == null) {
+            index = this.labels.size();
+            this.indexByLabel.put(label, index);
+            this.labels.add(label);
+        }
+
+        return index;
+
+    }
+
+    public long size() {
+        return size;
+    }
+
+}
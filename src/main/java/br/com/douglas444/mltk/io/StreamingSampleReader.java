@@ -0,0 +1,532 @@
+package br.com.douglas444.mltk.io;
+
+import br.com.douglas444.mltk.datastructure.DecisionModel;
+import br.com.douglas444.mltk.datastructure.SampleBatch;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/** Reads a CSV or ARFF file in a background thread and delivers its samples in
+ * fixed-size {@link SampleBatch}es. The bytes are parsed in place in the read
+ * buffer, straight into the primitive arrays of the batch, so reading a sample
+ * allocates nothing. Only a fixed number of batches exist: once all of them
+ * are waiting to be consumed, the reader thread blocks until the consumer
+ * hands one back with {@link #release(SampleBatch)}.
+ *
+ * Lines starting with '%' or '#' are comments and ARFF header lines, up to
+ * "@data", are skipped, except for the nominal values of the last attribute,
+ * which give the order of the label dictionary. Integer labels are used as they
+ * are; other labels are replaced by their position in the dictionary, which
+ * grows in order of appearance. Since both would share the same codes, a file
+ * whose labels are partly integers and partly not is rejected. The time of each
+ * sample is its position in the file, and "?" values are read as NaN.
+ *
+ * The read buffer grows to hold the longest line, up to a maximum line length,
+ * beyond which the file is rejected. If the reader thread fails, with an
+ * exception or an error, {@link #next()} rethrows it.
+ */
+public class StreamingSampleReader implements Closeable {
+
+    public static final int DEFAULT_MAX_LINE_LENGTH = 1 << 26;
+
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final Object END = new Object();
+    private static final long POLL_INTERVAL = 100;
+
+    private final FileChannel channel;
+    private final boolean labeled;
+    private final int batchSize;
+    private final int batchesInFlight;
+    private final int maxLineLength;
+    private final BlockingQueue<SampleBatch> freeBatches;
+    private final BlockingQueue<Object> fullBatches;
+    private final List<byte[]> dictionary;
+    private final NumberParser parser;
+    private final Thread thread;
+
+    private volatile int dimensions;
+    private volatile boolean closed;
+    private boolean header;
+    private long t;
+    private SampleBatch batch;
+    private boolean finished;
+    private boolean integerLabels;
+    private boolean nominalLabels;
+
+    /**
+     * @param labeled If true, the last column of each line is the label.
+     * @param batchesInFlight Number of batches shared by the reader thread and
+     * the consumer, which bounds the memory used and how far the reader can get
+     * ahead of the consumer.
+     */
+    public StreamingSampleReader(final Path path, final boolean labeled, final int batchSize,
+                                 final int batchesInFlight) throws IOException {
+        this(path, labeled, batchSize, batchesInFlight, DEFAULT_MAX_LINE_LENGTH);
+    }
+
+    /**
+     * @param maxLineLength Length in bytes of the longest line accepted.
+     */
+    public StreamingSampleReader(final Path path, final boolean labeled, final int batchSize,
+                                 final int batchesInFlight, final int maxLineLength) throws IOException {
+
+        if (batchSize < 1 || batchesInFlight < 1 || maxLineLength < 1) {
+            throw new IllegalArgumentException();
+        }
+
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.labeled = labeled;
+        this.batchSize = batchSize;
+        this.batchesInFlight = batchesInFlight;
+        this.maxLineLength = maxLineLength;
+        this.freeBatches = new ArrayBlockingQueue<>(batchesInFlight);
+        this.fullBatches = new ArrayBlockingQueue<>(batchesInFlight + 1);
+        this.dictionary = new ArrayList<>();
+        this.parser = new NumberParser();
+        this.dimensions = -1;
+        this.header = false;
+        this.t = 0;
+        this.finished = false;
+        this.closed = false;
+        this.integerLabels = false;
+        this.nominalLabels = false;
+
+        this.thread = new Thread(this::run, "mltk-sample-reader");
+        this.thread.setDaemon(true);
+        this.thread.start();
+
+    }
+
+    /** Waits for the next batch. The batch must be handed back with
+     * {@link #release(SampleBatch)} once it is consumed.
+     *
+     * @return Returns null once every sample of the file was delivered, or
+     * once the reader is closed.
+     */
+    public SampleBatch next() {
+
+        if (this.finished) {
+            return null;
+        }
+
+        Object next = null;
+
+        try {
+            while (next == null && !this.closed) {
+                next = this.fullBatches.poll(POLL_INTERVAL, TimeUnit.MILLISECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+
+        if (next == null || next == END) {
+            this.finished = true;
+            return null;
+        }
+
+        if (next instanceof IOException) {
+            this.finished = true;
+            throw new UncheckedIOException((IOException) next);
+        }
+
+        if (next instanceof RuntimeException) {
+            this.finished = true;
+            throw (RuntimeException) next;
+        }
+
+        if (next instanceof Error) {
+            this.finished = true;
+            throw (Error) next;
+        }
+
+        return (SampleBatch) next;
+
+    }
+
+    public void release(final SampleBatch batch) {
+        batch.clear();
+        this.freeBatches.add(batch);
+    }
+
+    /** Delivers every remaining batch to the consumer passed as argument,
+     * releasing each one after the consumer returns.
+     */
+    public void forEach(final Consumer<SampleBatch> consumer) {
+
+        SampleBatch batch;
+
+        while ((batch = this.next()) != null) {
+            try {
+                consumer.accept(batch);
+            } finally {
+                this.release(batch);
+            }
+        }
+
+    }
+
+    /** Returns the number of values of each sample, or -1 if no sample was read
+     * yet.
+     */
+    public int getDimensions() {
+        return this.dimensions;
+    }
+
+    /** Returns the non-integer labels met so far, each one standing for its
+     * position in the list.
+     */
+    public List<String> getLabelDictionary() {
+
+        final List<String> labels = new ArrayList<>();
+
+        synchronized (this.dictionary) {
+            this.dictionary.forEach(label -> labels.add(new String(label, StandardCharsets.UTF_8)));
+        }
+
+        return labels;
+
+    }
+
+    /** Stops the reader thread. A call to {@link #next()} waiting for a batch,
+     * or made afterwards, returns null.
+     */
+    @Override
+    public void close() throws IOException {
+        this.closed = true;
+        this.thread.interrupt();
+        this.channel.close();
+    }
+
+    private void run() {
+
+        try {
+
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            boolean endOfFile = false;
+
+            while (!endOfFile) {
+
+                endOfFile = this.channel.read(buffer) < 0;
+
+                final byte[] bytes = buffer.array();
+                final int end = buffer.position();
+                int lineStart = 0;
+                int next;
+
+                while (lineStart < end && (next = this.parseLine(bytes, lineStart, end, endOfFile)) != -1) {
+                    lineStart = Math.min(next, end);
+                }
+
+                ((Buffer) buffer).position(lineStart);
+                ((Buffer) buffer).limit(end);
+                buffer.compact();
+
+                if (!buffer.hasRemaining()) {
+                    if (buffer.capacity() >= this.maxLineLength) {
+                        throw new IOException("Line longer than " + this.maxLineLength + " bytes");
+                    }
+                    final ByteBuffer larger = ByteBuffer.allocate(
+                            (int) Math.min((long) buffer.capacity() * 2, this.maxLineLength));
+                    ((Buffer) buffer).flip();
+                    larger.put(buffer);
+                    buffer = larger;
+                }
+
+            }
+
+            if (this.batch != null && this.batch.size() > 0) {
+                this.fullBatches.put(this.batch);
+            }
+
+            this.fullBatches.put(END);
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Throwable e) {
+            this.fullBatches.offer(e);
+        }
+
+    }
+
+    /** Parses the line starting at the position passed as argument in a single
+     * pass, writing its values straight into the current batch.
+     *
+     * @return Returns the position of the next line, or -1 if the line is not
+     * complete in the buffer, in which case nothing is committed.
+     */
+    private int parseLine(final byte[] bytes, final int from, final int end, final boolean endOfFile)
+            throws InterruptedException {
+
+        int i = skipBlanks(bytes, from, end);
+
+        if (i < end && (bytes[i] == '\n' || bytes[i] == '\r')) {
+            return i + 1;
+        }
+
+        if (i == end || bytes[i] == '%' || bytes[i] == '#' || bytes[i] == '@' || this.header
+                || this.dimensions == -1) {
+
+            final int lineEnd = findLineEnd(bytes, i, end);
+
+            if (lineEnd == end && !endOfFile) {
+                return -1;
+            }
+
+            if (i < end && bytes[i] == '@') {
+                this.parseHeaderLine(new String(bytes, i, lineEnd - i, StandardCharsets.UTF_8).trim());
+                return lineEnd + 1;
+            }
+
+            if (i == lineEnd || bytes[i] == '%' || bytes[i] == '#' || this.header) {
+                return lineEnd + 1;
+            }
+
+            this.initialize(bytes, i, lineEnd);
+
+        }
+
+        if (this.batch == null) {
+            this.batch = this.freeBatches.take();
+        }
+
+        final double[] x = this.batch.getX();
+        final int offset = this.batch.size() * this.dimensions;
+        int label = DecisionModel.NO_LABEL;
+
+        for (int j = 0; j < this.dimensions; ++j) {
+
+            i = skipBlanks(bytes, i, end);
+            double value = this.parser.parseDouble(bytes, i, end);
+            int valueEnd = skipBlanks(bytes, this.parser.getPosition(), end);
+
+            if (valueEnd < end && bytes[valueEnd] != ',' && bytes[valueEnd] != '\n' && bytes[valueEnd] != '\r') {
+                valueEnd = findFieldEnd(bytes, valueEnd, end);
+                if (valueEnd < end || endOfFile) {
+                    value = NumberParser.parseToken(bytes, i, valueEnd);
+                }
+            }
+
+            if (valueEnd == end && !endOfFile) {
+                return -1;
+            }
+
+            final boolean last = j == this.dimensions - 1 && !this.labeled;
+
+            if (valueEnd == end || bytes[valueEnd] != ',') {
+                if (!last) {
+                    throw new IllegalStateException("Line " + (this.t + 1) + " has too few values");
+                }
+            } else if (last) {
+                throw new IllegalStateException("Line " + (this.t + 1) + " has too many values");
+            }
+
+            x[offset + j] = value;
+            i = valueEnd < end && bytes[valueEnd] == ',' ? valueEnd + 1 : valueEnd;
+
+        }
+
+        if (this.labeled) {
+
+            final int labelEnd = findFieldEnd(bytes, i, end);
+
+            if (labelEnd == end && !endOfFile) {
+                return -1;
+            }
+
+            if (labelEnd < end && bytes[labelEnd] == ',') {
+                throw new IllegalStateException("Line " + (this.t + 1) + " has too many values");
+            }
+
+            final int labelFrom = skipBlanks(bytes, i, labelEnd);
+            int labelTo = labelEnd;
+            while (labelTo > labelFrom && bytes[labelTo - 1] <= ' ') {
+                --labelTo;
+            }
+
+            if (labelFrom == labelTo) {
+                throw new IllegalStateException("Line " + (this.t + 1) + " has too few values");
+            }
+
+            label = this.parseLabel(bytes, labelFrom, labelTo);
+            i = labelEnd;
+
+        }
+
+        final int lineEnd = findLineEnd(bytes, i, end);
+
+        if (lineEnd == end && !endOfFile) {
+            return -1;
+        }
+
+        this.batch.append(this.t++, label);
+
+        if (this.batch.isFull()) {
+            this.fullBatches.put(this.batch);
+            this.batch = null;
+        }
+
+        return lineEnd + 1;
+
+    }
+
+    private void parseHeaderLine(final String line) {
+
+        final String lowerCase = line.toLowerCase(Locale.ROOT);
+
+        if (lowerCase.startsWith("@data")) {
+            this.header = false;
+            return;
+        }
+
+        this.header = true;
+
+        if (!lowerCase.startsWith("@attribute")) {
+            return;
+        }
+
+        final int open = line.indexOf('{');
+        final int close = line.lastIndexOf('}');
+
+        synchronized (this.dictionary) {
+
+            this.dictionary.clear();
+
+            if (open != -1 && close > open) {
+                Arrays.stream(line.substring(open + 1, close).split(","))
+                        .map(value -> unquote(value.trim()).getBytes(StandardCharsets.UTF_8))
+                        .forEach(this.dictionary::add);
+            }
+
+        }
+
+    }
+
+    private int parseLabel(final byte[] bytes, int from, int to) {
+
+        if (to - from >= 2 && (bytes[from] == '\'' || bytes[from] == '"') && bytes[to - 1] == bytes[from]) {
+            ++from;
+            --to;
+        }
+
+        if (NumberParser.isInteger(bytes, from, to)) {
+            if (this.nominalLabels) {
+                throw new IllegalStateException("Line " + (this.t + 1) + " mixes integer and non-integer labels");
+            }
+            this.integerLabels = true;
+            return NumberParser.parseInteger(bytes, from, to);
+        }
+
+        if (this.integerLabels) {
+            throw new IllegalStateException("Line " + (this.t + 1) + " mixes integer and non-integer labels");
+        }
+
+        this.nominalLabels = true;
+
+        for (int i = 0; i < this.dictionary.size(); ++i) {
+            final byte[] label = this.dictionary.get(i);
+            if (label.length == to - from && equals(label, bytes, from)) {
+                return i;
+            }
+        }
+
+        synchronized (this.dictionary) {
+            this.dictionary.add(Arrays.copyOfRange(bytes, from, to));
+        }
+
+        return this.dictionary.size() - 1;
+
+    }
+
+    private void initialize(final byte[] bytes, final int from, final int to) {
+
+        int fields = 1;
+        for (int i = from; i < to; ++i) {
+            if (bytes[i] == ',') {
+                ++fields;
+            }
+        }
+
+        final int dimensions = this.labeled ? fields - 1 : fields;
+
+        if (dimensions < 1) {
+            throw new IllegalStateException("Line " + (this.t + 1) + " has no values");
+        }
+
+        for (int i = 0; i < this.batchesInFlight; ++i) {
+            this.freeBatches.add(new SampleBatch(this.batchSize, dimensions));
+        }
+
+        this.dimensions = dimensions;
+
+    }
+
+    private static int skipBlanks(final byte[] bytes, int i, final int end) {
+
+        while (i < end && (bytes[i] == ' ' || bytes[i] == '\t')) {
+            ++i;
+        }
+
+        return i;
+
+    }
+
+    private static int findFieldEnd(final byte[] bytes, int i, final int end) {
+
+        while (i < end && bytes[i] != ',' && bytes[i] != '\n' && bytes[i] != '\r') {
+            ++i;
+        }
+
+        return i;
+
+    }
+
+    private static int findLineEnd(final byte[] bytes, int i, final int end) {
+
+        while (i < end && bytes[i] != '\n') {
+            ++i;
+        }
+
+        return i;
+
+    }
+
+    private static boolean equals(final byte[] label, final byte[] bytes, final int from) {
+
+        for (int i = 0; i < label.length; ++i) {
+            if (label[i] != bytes[from + i]) {
+                return false;
+            }
+        }
+
+        return true;
+
+    }
+
+    private static String unquote(final String value) {
+
+        if (value.length() >= 2 && (value.charAt(0) == '\'' || value.charAt(0) == '"')
+                && value.charAt(value.length() - 1) == value.charAt(0)) {
+            return value.substring(1, value.length() - 1);
+        }
+
+        return value;
+
+    }
+
+}
@@ -0,0 +1,47 @@
+package br.com.douglas444.mltk.pipeline;
+
+import br.com.douglas444.mltk.datastructure.BatchClassification;
+import br.com.douglas444.mltk.datastructure.ModelReference;
+import br.com.douglas444.mltk.datastructure.ModelSnapshot;
+import br.com.douglas444.mltk.datastructure.Sample;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/** Classifies each batch against the snapshot of the decision model current
+ * when the batch arrives, so a retraining stage can publish new versions to
+ * the same {@link ModelReference} without stalling classification.
+ */
+public class ClassificationStage implements Stage<Sample, ClassifiedSample> {
+
+    private final ModelReference model;
+
+    public ClassificationStage(final ModelReference model) {
+        this.model = model;
+    }
+
+    @Override
+    public void process(final List<Sample> batch, final Consumer<ClassifiedSample> downstream) {
+
+        final ModelSnapshot snapshot = this.model.get();
+        final int dimensions = snapshot.getDecisionModel().getDimensions();
+        final double[] buffer = new double[batch.size() * dimensions];
+
+        for (int i = 0; i < batch.size(); ++i) {
+            if (batch.get(i).getX().length != dimensions) {
+                throw new IllegalArgumentException();
+            }
+            System.arraycopy(batch.get(i).getX(), 0, buffer, i * dimensions, dimensions);
+        }
+
+        final BatchClassification classification = snapshot.classify(buffer, batch.size());
+
+        for (int i = 0; i < batch.size(); ++i) {
+            downstream.accept(new ClassifiedSample(batch.get(i), snapshot.getVersion(),
+                    classification.getIndices()[i], classification.getLabels()[i],
+                    classification.getDistances()[i], classification.getInsideRadius()[i]));
+        }
+
+    }
+
+}
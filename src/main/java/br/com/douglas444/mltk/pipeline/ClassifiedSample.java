@@ -0,0 +1,58 @@
+package br.com.douglas444.mltk.pipeline;
+
+import br.com.douglas444.mltk.datastructure.DecisionModel;
+import br.com.douglas444.mltk.datastructure.Sample;
+
+public class ClassifiedSample {
+
+    private final Sample sample;
+    private final long modelVersion;
+    private final int index;
+    private final int label;
+    private final double distance;
+    private final boolean insideRadius;
+
+    public ClassifiedSample(final Sample sample, final long modelVersion, final int index, final int label,
+                            final double distance, final boolean insideRadius) {
+        this.sample = sample;
+        this.modelVersion = modelVersion;
+        this.index = index;
+        this.label = label;
+        this.distance = distance;
+        this.insideRadius = insideRadius;
+    }
+
+    /** Returns true if the sample falls outside the radius of the closest
+     * summary, that is, if it is not explained by the decision model.
+     */
+    public boolean isUnknown() {
+        return !this.insideRadius;
+    }
+
+    public Sample getSample() {
+        return sample;
+    }
+
+    public long getModelVersion() {
+        return modelVersion;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    /** Returns the label of the closest summary, or {@link DecisionModel#NO_LABEL}.
+     */
+    public int getLabel() {
+        return label;
+    }
+
+    public double getDistance() {
+        return distance;
+    }
+
+    public boolean isInsideRadius() {
+        return insideRadius;
+    }
+
+}
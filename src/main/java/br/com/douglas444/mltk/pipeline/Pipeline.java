@@ -0,0 +1,285 @@
+package br.com.douglas444.mltk.pipeline;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/** Chain of {@link Stage}s connected by bounded queues, each stage running in
+ * its own thread. A stage takes from its queue as many items as are waiting,
+ * up to its batch size, and blocks on the queue of the next stage when that
+ * one is full, so a slow stage, such as a clustering one, slows the stages
+ * before it down instead of letting the queues grow, while the stages after it
+ * keep running on what they already received.
+ *
+ * <pre>
+ * Pipeline&lt;Sample&gt; pipeline = Pipeline.&lt;Sample&gt;builder()
+ *         .then(new ClassificationStage(model), 1024, 256)
+ *         .then((batch, downstream) -&gt; ..., 1024, 256)
+ *         .to(result -&gt; ...);
+ * samples.forEach(pipeline::submit);
+ * pipeline.close();
+ * </pre>
+ *
+ * If a stage throws, every stage is stopped and the exception is rethrown, as
+ * the cause of an {@link IllegalStateException}, by the next call to
+ * {@link #submit} or {@link #close()}.
+ */
+public final class Pipeline<I> implements AutoCloseable {
+
+    private static final Object END = new Object();
+    private static final long POLL_INTERVAL = 100;
+
+    private final List<Node> nodes;
+    private volatile Throwable failure;
+    private final ReadWriteLock lock;
+    private boolean closed;
+
+    private Pipeline(final List<Node> nodes) {
+
+        this.nodes = nodes;
+        this.lock = new ReentrantReadWriteLock();
+        this.closed = false;
+
+        for (int i = 0; i < nodes.size(); ++i) {
+            final Node node = nodes.get(i);
+            node.thread = new Thread(() -> this.run(node), "mltk-pipeline-stage-" + (i + 1));
+            node.thread.setDaemon(true);
+        }
+
+        nodes.forEach(node -> node.thread.start());
+
+    }
+
+    public static <T> Builder<T, T> builder() {
+        return new Builder<>(new ArrayList<>());
+    }
+
+    /** Puts an item in the queue of the first stage, waiting while it is full.
+     * Several threads may submit at once, but not while the pipeline is being
+     * closed, so every item accepted is ahead of the end of the stream.
+     */
+    public void submit(final I item) {
+
+        this.lock.readLock().lock();
+
+        try {
+
+            if (this.closed) {
+                throw new IllegalStateException("Pipeline is closed");
+            }
+
+            this.put(this.nodes.get(0).queue, item);
+
+        } finally {
+            this.lock.readLock().unlock();
+        }
+
+    }
+
+    /** Waits until every submitted item went through the whole pipeline,
+     * after the submissions in progress, if any, are done.
+     */
+    @Override
+    public void close() {
+
+        this.lock.writeLock().lock();
+
+        try {
+            if (!this.closed) {
+                this.closed = true;
+                this.put(this.nodes.get(0).queue, END);
+            }
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+
+        for (final Node node : this.nodes) {
+            try {
+                node.thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        }
+
+        this.checkFailure();
+
+    }
+
+    private void run(final Node node) {
+
+        final List<Object> batch = new ArrayList<>(node.batchSize);
+        final Consumer<Object> downstream = node.next == null
+                ? node.sink
+                : item -> this.put(node.next.queue, item);
+
+        try {
+
+            boolean end = false;
+
+            while (!end) {
+
+                batch.add(node.queue.take());
+                node.queue.drainTo(batch, node.batchSize - 1);
+
+                int items = 0;
+                while (items < batch.size() && batch.get(items) != END) {
+                    ++items;
+                }
+
+                end = items < batch.size();
+
+                if (items > 0) {
+                    node.stage.process(end ? batch.subList(0, items) : batch, downstream);
+                }
+
+                if (end && items < batch.size() - 1) {
+                    throw new IllegalStateException("Pipeline received items after its end");
+                }
+
+                batch.clear();
+
+            }
+
+            node.stage.complete(downstream);
+
+            if (node.next != null) {
+                this.put(node.next.queue, END);
+            }
+
+        } catch (InterruptedException | RuntimeException | Error e) {
+            this.fail(e);
+        }
+
+    }
+
+    private void put(final BlockingQueue<Object> queue, final Object item) {
+
+        try {
+            while (!queue.offer(item, POLL_INTERVAL, TimeUnit.MILLISECONDS)) {
+                this.checkFailure();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+
+        this.checkFailure();
+
+    }
+
+    private void fail(final Throwable throwable) {
+
+        synchronized (this) {
+            if (this.failure == null) {
+                this.failure = throwable;
+            }
+        }
+
+        this.nodes.forEach(node -> node.thread.interrupt());
+
+    }
+
+    private void checkFailure() {
+
+        if (this.failure != null) {
+            throw new IllegalStateException("Pipeline stage failed", this.failure);
+        }
+
+    }
+
+    /** Immutable description of a chain of stages. Each call to
+     * {@link #then} returns a new builder and leaves this one as it was, so
+     * several pipelines can branch off a common prefix, and each call to
+     * {@link #to} starts a pipeline with queues and threads of its own. The
+     * {@link Stage} objects themselves are shared by every pipeline built from
+     * them, so a stateful stage should only be used in one.
+     */
+    public static final class Builder<I, O> {
+
+        private final List<StageSpec> specs;
+
+        private Builder(final List<StageSpec> specs) {
+            this.specs = specs;
+        }
+
+        /**
+         * @param capacity Capacity of the queue in front of the stage.
+         * @param batchSize Maximum number of items handed to the stage at once.
+         */
+        @SuppressWarnings("unchecked")
+        public <N> Builder<I, N> then(final Stage<O, N> stage, final int capacity, final int batchSize) {
+
+            if (capacity < 1 || batchSize < 1) {
+                throw new IllegalArgumentException();
+            }
+
+            final List<StageSpec> specs = new ArrayList<>(this.specs);
+            specs.add(new StageSpec((Stage<Object, Object>) (Stage<?, ?>) stage, capacity, batchSize));
+            return new Builder<>(specs);
+
+        }
+
+        /** Starts the pipeline, handing what the last stage emits to the sink
+         * passed as argument, in the thread of the last stage.
+         */
+        @SuppressWarnings("unchecked")
+        public Pipeline<I> to(final Consumer<O> sink) {
+
+            if (this.specs.isEmpty()) {
+                throw new IllegalStateException("Pipeline has no stages");
+            }
+
+            final List<Node> nodes = new ArrayList<>();
+            for (final StageSpec spec : this.specs) {
+                final Node node = new Node(spec.stage, spec.capacity, spec.batchSize);
+                if (!nodes.isEmpty()) {
+                    nodes.get(nodes.size() - 1).next = node;
+                }
+                nodes.add(node);
+            }
+
+            nodes.get(nodes.size() - 1).sink = (Consumer<Object>) sink;
+            return new Pipeline<>(nodes);
+
+        }
+
+    }
+
+    private static final class StageSpec {
+
+        private final Stage<Object, Object> stage;
+        private final int capacity;
+        private final int batchSize;
+
+        private StageSpec(final Stage<Object, Object> stage, final int capacity, final int batchSize) {
+            this.stage = stage;
+            this.capacity = capacity;
+            this.batchSize = batchSize;
+        }
+
+    }
+
+    private static final class Node {
+
+        private final Stage<Object, Object> stage;
+        private final BlockingQueue<Object> queue;
+        private final int batchSize;
+        private Node next;
+        private Consumer<Object> sink;
+        private Thread thread;
+
+        private Node(final Stage<Object, Object> stage, final int capacity, final int batchSize) {
+            this.stage = stage;
+            this.queue = new ArrayBlockingQueue<>(capacity);
+            this.batchSize = batchSize;
+        }
+
+    }
+
+}
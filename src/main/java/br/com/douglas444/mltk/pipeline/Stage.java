@@ -0,0 +1,20 @@
+package br.com.douglas444.mltk.pipeline;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/** Step of a {@link Pipeline}. Each stage runs in its own thread and receives
+ * the items waiting in its input queue in batches; the items it emits are put
+ * in the input queue of the next stage, blocking while that queue is full.
+ */
+public interface Stage<I, O> {
+
+    void process(List<I> batch, Consumer<O> downstream);
+
+    /** Called once after the last batch, so that a stage holding items back,
+     * such as a buffer waiting for enough samples, can emit what is left.
+     */
+    default void complete(final Consumer<O> downstream) {
+    }
+
+}
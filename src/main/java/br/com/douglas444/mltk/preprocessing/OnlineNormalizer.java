@@ -0,0 +1,372 @@
+package br.com.douglas444.mltk.preprocessing;
+
+import br.com.douglas444.mltk.datastructure.ClusterFeature;
+import br.com.douglas444.mltk.datastructure.ClusterSummary;
+import br.com.douglas444.mltk.datastructure.DecisionModel;
+import br.com.douglas444.mltk.datastructure.PseudoPoint;
+import br.com.douglas444.mltk.datastructure.Sample;
+import br.com.douglas444.mltk.datastructure.SampleBatch;
+import br.com.douglas444.mltk.datastructure.SampleMatrix;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/** Per-dimension normalizer whose statistics are updated as samples stream
+ * in: mean and variance with Welford's method, and minimum and maximum. With
+ * a decay below 1 older samples weigh exponentially less, the mean and
+ * variance becoming exponentially weighted ones and the minimum and maximum
+ * drifting back toward the mean by a fraction 1 − decay per sample, so the
+ * statistics follow a drifting stream.
+ *
+ * Normalization is the affine map x' = s ⊙ (x − o), with o the mean and s the
+ * inverse of the standard deviation for z-scores, or o the minimum and s the
+ * inverse of the range for min-max. The map is taken from the statistics at
+ * the time of each call and applied in place, so batches are normalized in
+ * the buffer they were read into. Being affine, it can also be applied to the
+ * sums of a {@link ClusterFeature}, or baked into a {@link DecisionModel}
+ * that classifies raw samples as if they were normalized.
+ */
+public class OnlineNormalizer {
+
+    public enum Method {
+        Z_SCORE,
+        MIN_MAX
+    }
+
+    private final int dimensions;
+    private final Method method;
+    private final double decay;
+    private final double[] mean;
+    private final double[] m2;
+    private final double[] min;
+    private final double[] max;
+    private double weight;
+
+    public OnlineNormalizer(final int dimensions, final Method method) {
+        this(dimensions, method, 1);
+    }
+
+    /**
+     * @param decay Factor in (0, 1] by which the weight of the previous
+     * samples is multiplied at each update, 1 to weigh every sample equally.
+     */
+    public OnlineNormalizer(final int dimensions, final Method method, final double decay) {
+
+        if (dimensions < 1 || decay <= 0 || decay > 1) {
+            throw new IllegalArgumentException();
+        }
+
+        this.dimensions = dimensions;
+        this.method = method;
+        this.decay = decay;
+        this.mean = new double[dimensions];
+        this.m2 = new double[dimensions];
+        this.min = new double[dimensions];
+        this.max = new double[dimensions];
+        this.weight = 0;
+
+    }
+
+    public void update(final double[] x) {
+
+        if (x.length != this.dimensions) {
+            throw new IllegalArgumentException();
+        }
+
+        this.updateRow(x, 0);
+
+    }
+
+    public void update(final double[] buffer, final int n) {
+
+        this.checkBuffer(buffer, n);
+
+        for (int i = 0; i < n; ++i) {
+            this.updateRow(buffer, i * this.dimensions);
+        }
+
+    }
+
+    public void update(final SampleMatrix samples) {
+
+        if (samples.getDimensions() != this.dimensions) {
+            throw new IllegalArgumentException();
+        }
+
+        final double[] x = new double[this.dimensions];
+        for (int i = 0; i < samples.size(); ++i) {
+            samples.copyRow(i, x, 0);
+            this.updateRow(x, 0);
+        }
+
+    }
+
+    /** Normalizes the vector passed as argument in place.
+     */
+    public void normalize(final double[] x) {
+
+        if (x.length != this.dimensions) {
+            throw new IllegalArgumentException();
+        }
+
+        this.normalize(x, 1);
+
+    }
+
+    /** Normalizes the first n vectors stored row by row in the buffer, in
+     * place.
+     */
+    public void normalize(final double[] buffer, final int n) {
+
+        this.checkBuffer(buffer, n);
+
+        final double[] offsets = this.getOffsets();
+        final double[] scales = this.getScales();
+
+        for (int i = 0; i < n; ++i) {
+            final int rowOffset = i * this.dimensions;
+            for (int l = 0; l < this.dimensions; ++l) {
+                buffer[rowOffset + l] = (buffer[rowOffset + l] - offsets[l]) * scales[l];
+            }
+        }
+
+    }
+
+    public void normalize(final SampleBatch batch) {
+
+        if (batch.getDimensions() != this.dimensions) {
+            throw new IllegalArgumentException();
+        }
+
+        this.normalize(batch.getX(), batch.size());
+
+    }
+
+    /** Updates the statistics with the first n vectors of the buffer and then
+     * normalizes them in place, while the batch is still in cache.
+     */
+    public void updateAndNormalize(final double[] buffer, final int n) {
+        this.update(buffer, n);
+        this.normalize(buffer, n);
+    }
+
+    public void updateAndNormalize(final SampleBatch batch) {
+
+        if (batch.getDimensions() != this.dimensions) {
+            throw new IllegalArgumentException();
+        }
+
+        this.updateAndNormalize(batch.getX(), batch.size());
+
+    }
+
+    /** Returns the cluster feature of the normalized samples of a cluster of
+     * raw samples, computed from its sums alone.
+     */
+    public ClusterFeature normalize(final ClusterFeature clusterFeature) {
+
+        final double[] offsets = this.getOffsets();
+        final double[] scales = this.getScales();
+        final double[] shifts = new double[this.dimensions];
+
+        for (int l = 0; l < this.dimensions; ++l) {
+            shifts[l] = -offsets[l] * scales[l];
+        }
+
+        return transform(clusterFeature, scales, shifts);
+
+    }
+
+    /** Returns the cluster feature of the raw samples of a cluster of
+     * normalized samples, computed from its sums alone.
+     */
+    public ClusterFeature denormalize(final ClusterFeature clusterFeature) {
+        return transform(clusterFeature, inverse(this.getScales()), this.getOffsets());
+    }
+
+    public Sample denormalize(final Sample sample) {
+
+        if (sample.getX().length != this.dimensions) {
+            throw new IllegalArgumentException();
+        }
+
+        final double[] offsets = this.getOffsets();
+        final double[] scales = this.getScales();
+        final double[] x = new double[this.dimensions];
+
+        for (int l = 0; l < this.dimensions; ++l) {
+            x[l] = sample.getX()[l] / scales[l] + offsets[l];
+        }
+
+        final Sample denormalized = new Sample(x, sample.getY());
+        denormalized.setT(sample.getT());
+        return denormalized;
+
+    }
+
+    /** Bakes the current normalization into a decision model over summaries
+     * of normalized samples. The centroids are mapped back to the raw space
+     * and the distance is weighted by the squared scales, so that
+     * Σ sₗ²(xₗ − cₗ/sₗ − oₗ)², computed on a raw sample, is its squared
+     * distance to the centroid in the normalized space: raw samples are
+     * classified, radii included, exactly as their normalized versions would
+     * be, without being normalized. The summaries of the model are
+     * {@link PseudoPoint}s holding the raw centroids and the normalized
+     * standard deviations, in the order of the list passed as argument.
+     */
+    public DecisionModel createDecisionModel(final List<? extends ClusterSummary> normalizedSummaries,
+                                             final double radiusFactor) {
+
+        final List<PseudoPoint> pseudoPoints = new ArrayList<>();
+
+        for (final ClusterSummary summary : normalizedSummaries) {
+
+            final Sample centroid = this.denormalize(summary.calculateCentroid());
+
+            if (summary instanceof PseudoPoint && ((PseudoPoint) summary).getStandardDeviation() == null) {
+                pseudoPoints.add(new PseudoPoint(centroid));
+            } else {
+                pseudoPoints.add(new PseudoPoint(centroid, summary.calculateStandardDeviation()));
+            }
+
+        }
+
+        final double[] scales = this.getScales();
+        final double[] weights = new double[this.dimensions];
+        for (int l = 0; l < this.dimensions; ++l) {
+            weights[l] = scales[l] * scales[l];
+        }
+
+        return new DecisionModel(pseudoPoints, radiusFactor, false, weights);
+
+    }
+
+    /** Returns the offset o of the current normalization.
+     */
+    public double[] getOffsets() {
+        return this.method == Method.Z_SCORE ? this.mean.clone() : this.min.clone();
+    }
+
+    /** Returns the scale s of the current normalization, 1 for the dimensions
+     * that did not vary.
+     */
+    public double[] getScales() {
+
+        final double[] scales = new double[this.dimensions];
+
+        for (int l = 0; l < this.dimensions; ++l) {
+            final double spread = this.method == Method.Z_SCORE
+                    ? Math.sqrt(this.getVariance(l))
+                    : this.max[l] - this.min[l];
+            scales[l] = spread > 0 ? 1 / spread : 1;
+        }
+
+        return scales;
+
+    }
+
+    public double getMean(final int dimension) {
+        return this.mean[dimension];
+    }
+
+    public double getVariance(final int dimension) {
+        return this.weight == 0 ? 0 : Math.max(0, this.m2[dimension] / this.weight);
+    }
+
+    public double getMin(final int dimension) {
+        return this.min[dimension];
+    }
+
+    public double getMax(final int dimension) {
+        return this.max[dimension];
+    }
+
+    /** Returns the effective number of samples, the sum of their decayed
+     * weights.
+     */
+    public double getWeight() {
+        return weight;
+    }
+
+    public int getDimensions() {
+        return dimensions;
+    }
+
+    public Method getMethod() {
+        return method;
+    }
+
+    private void updateRow(final double[] buffer, final int offset) {
+
+        final boolean first = this.weight == 0;
+        this.weight = this.decay * this.weight + 1;
+
+        for (int l = 0; l < this.dimensions; ++l) {
+
+            final double x = buffer[offset + l];
+            final double delta = x - this.mean[l];
+
+            this.mean[l] += delta / this.weight;
+            this.m2[l] = this.decay * this.m2[l] + delta * (x - this.mean[l]);
+
+            if (first) {
+                this.min[l] = x;
+                this.max[l] = x;
+            } else {
+                this.min[l] = Math.min(x, this.min[l] + (1 - this.decay) * (this.mean[l] - this.min[l]));
+                this.max[l] = Math.max(x, this.max[l] - (1 - this.decay) * (this.max[l] - this.mean[l]));
+            }
+
+        }
+
+    }
+
+    private void checkBuffer(final double[] buffer, final int n) {
+
+        if (n < 0 || (long) n * this.dimensions > buffer.length) {
+            throw new IllegalArgumentException();
+        }
+
+    }
+
+    /** Returns the cluster feature of the samples mapped by y = a ⊙ x + b.
+     */
+    private static ClusterFeature transform(final ClusterFeature clusterFeature, final double[] a,
+                                            final double[] b) {
+
+        final double[] ls = clusterFeature.getLs();
+        final double[][] ss = clusterFeature.getSs();
+        final int n = clusterFeature.getN();
+        final int dimensions = a.length;
+
+        if (ls.length != dimensions) {
+            throw new IllegalArgumentException();
+        }
+
+        final double[] transformedLs = new double[dimensions];
+        final double[][] transformedSs = new double[dimensions][dimensions];
+
+        for (int i = 0; i < dimensions; ++i) {
+            transformedLs[i] = a[i] * ls[i] + n * b[i];
+            for (int j = 0; j < dimensions; ++j) {
+                transformedSs[i][j] = a[i] * a[j] * ss[i][j] + a[i] * b[j] * ls[i] + b[i] * a[j] * ls[j]
+                        + n * b[i] * b[j];
+            }
+        }
+
+        return new ClusterFeature(transformedLs, transformedSs, n, clusterFeature.getLabel());
+
+    }
+
+    private static double[] inverse(final double[] values) {
+
+        final double[] inverse = Arrays.copyOf(values, values.length);
+        for (int i = 0; i < inverse.length; ++i) {
+            inverse[i] = 1 / inverse[i];
+        }
+        return inverse;
+
+    }
+
+}
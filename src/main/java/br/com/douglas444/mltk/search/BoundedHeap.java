@@ -0,0 +1,112 @@
+package br.com.douglas444.mltk.search;
+
+/** Max-heap of at most k (distance, index) pairs kept in two primitive arrays.
+ * Once full, a pair is only inserted if it is closer than the farthest one
+ * kept, which it replaces, so scanning n candidates costs O(n log k).
+ */
+class BoundedHeap {
+
+    private final double[] distances;
+    private final int[] indices;
+    private int size;
+
+    BoundedHeap(final int capacity) {
+
+        if (capacity < 1) {
+            throw new IllegalArgumentException();
+        }
+
+        this.distances = new double[capacity];
+        this.indices = new int[capacity];
+        this.size = 0;
+
+    }
+
+    void offer(final double distance, final int index) {
+
+        if (this.size < this.distances.length) {
+
+            int i = this.size++;
+
+            while (i > 0 && this.distances[(i - 1) / 2] < distance) {
+                final int parent = (i - 1) / 2;
+                this.distances[i] = this.distances[parent];
+                this.indices[i] = this.indices[parent];
+                i = parent;
+            }
+
+            this.distances[i] = distance;
+            this.indices[i] = index;
+
+        } else if (distance < this.distances[0]) {
+            this.replaceRoot(distance, index);
+        }
+
+    }
+
+    /** Returns the distance a candidate must be under to enter the heap.
+     */
+    double threshold() {
+        return this.size < this.distances.length ? Double.POSITIVE_INFINITY : this.distances[0];
+    }
+
+    int size() {
+        return this.size;
+    }
+
+    /** Empties the heap, returning its indices in increasing order of
+     * distance and writing the distances, in the same order, to the array
+     * passed as argument.
+     */
+    int[] drain(final double[] sortedDistances) {
+
+        final int n = this.size;
+        final int[] sortedIndices = new int[n];
+
+        for (int i = n - 1; i >= 0; --i) {
+            sortedDistances[i] = this.distances[0];
+            sortedIndices[i] = this.indices[0];
+            --this.size;
+            if (this.size > 0) {
+                final double distance = this.distances[this.size];
+                final int index = this.indices[this.size];
+                this.replaceRoot(distance, index);
+            }
+        }
+
+        return sortedIndices;
+
+    }
+
+    private void replaceRoot(final double distance, final int index) {
+
+        int i = 0;
+
+        while (true) {
+
+            int child = 2 * i + 1;
+
+            if (child >= this.size) {
+                break;
+            }
+
+            if (child + 1 < this.size && this.distances[child + 1] > this.distances[child]) {
+                ++child;
+            }
+
+            if (this.distances[child] <= distance) {
+                break;
+            }
+
+            this.distances[i] = this.distances[child];
+            this.indices[i] = this.indices[child];
+            i = child;
+
+        }
+
+        this.distances[i] = distance;
+        this.indices[i] = index;
+
+    }
+
+}
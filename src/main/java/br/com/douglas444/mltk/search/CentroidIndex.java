@@ -0,0 +1,161 @@
+package br.com.douglas444.mltk.search;
+
+import br.com.douglas444.mltk.datastructure.ClusterSummary;
+import br.com.douglas444.mltk.datastructure.Sample;
+
+import java.util.List;
+
+/** Approximate nearest-centroid search over the centroids of a list of
+ * summaries, for decision models too large to scan exhaustively. The index
+ * returned for a query is the position of a summary in that list, the same
+ * position a {@link br.com.douglas444.mltk.datastructure.DecisionModel}
+ * built from the list would report.
+ */
+public abstract class CentroidIndex {
+
+    final int dimensions;
+    final int size;
+    final double[] centroids;
+    final SearchMetrics metrics;
+
+    CentroidIndex(final List<? extends ClusterSummary> summaries) {
+
+        if (summaries.isEmpty()) {
+            throw new IllegalArgumentException();
+        }
+
+        this.dimensions = summaries.get(0).calculateCentroid().getX().length;
+        this.size = summaries.size();
+        this.centroids = new double[this.size * this.dimensions];
+        this.metrics = new SearchMetrics();
+
+        for (int i = 0; i < this.size; ++i) {
+            final Sample centroid = summaries.get(i).calculateCentroid();
+            if (centroid.getX().length != this.dimensions) {
+                throw new IllegalArgumentException();
+            }
+            System.arraycopy(centroid.getX(), 0, this.centroids, i * this.dimensions, this.dimensions);
+        }
+
+    }
+
+    /** Returns the position of an approximately closest centroid to the
+     * vector stored in the buffer from the offset on.
+     */
+    abstract int searchAt(double[] buffer, int offset);
+
+    public int search(final double[] x) {
+
+        if (x.length != this.dimensions) {
+            throw new IllegalArgumentException();
+        }
+
+        return this.searchAt(x, 0);
+
+    }
+
+    /** Searches the first n vectors stored row by row in the buffer.
+     */
+    public int[] search(final double[] buffer, final int n) {
+
+        if (n < 0 || (long) n * this.dimensions > buffer.length) {
+            throw new IllegalArgumentException();
+        }
+
+        final int[] indices = new int[n];
+        for (int i = 0; i < n; ++i) {
+            indices[i] = this.searchAt(buffer, i * this.dimensions);
+        }
+        return indices;
+
+    }
+
+    /** Answers the first n queries of the buffer both exhaustively and with
+     * this index, timing each. The approximate queries are counted in the
+     * metrics of the index like any other.
+     */
+    public RecallEvaluation evaluate(final double[] buffer, final int n) {
+
+        if (n < 0 || (long) n * this.dimensions > buffer.length) {
+            throw new IllegalArgumentException();
+        }
+
+        final long exactStart = System.nanoTime();
+        final int[] exact = new int[n];
+        for (int i = 0; i < n; ++i) {
+            exact[i] = this.exactSearch(buffer, i * this.dimensions);
+        }
+        final long exactNanos = System.nanoTime() - exactStart;
+
+        final long approximateStart = System.nanoTime();
+        final int[] approximate = new int[n];
+        for (int i = 0; i < n; ++i) {
+            approximate[i] = this.searchAt(buffer, i * this.dimensions);
+        }
+        final long approximateNanos = System.nanoTime() - approximateStart;
+
+        int hits = 0;
+        for (int i = 0; i < n; ++i) {
+            final int offset = i * this.dimensions;
+            if (approximate[i] == exact[i] || this.squaredDistance(buffer, offset, approximate[i])
+                    <= this.squaredDistance(buffer, offset, exact[i])) {
+                ++hits;
+            }
+        }
+
+        return new RecallEvaluation(n, hits, exactNanos, approximateNanos);
+
+    }
+
+    int exactSearch(final double[] buffer, final int offset) {
+
+        int closest = 0;
+        double minimum = Double.POSITIVE_INFINITY;
+
+        for (int j = 0; j < this.size; ++j) {
+            final double distance = this.squaredDistance(buffer, offset, j, minimum);
+            if (distance < minimum) {
+                minimum = distance;
+                closest = j;
+            }
+        }
+
+        return closest;
+
+    }
+
+    double squaredDistance(final double[] buffer, final int offset, final int centroid) {
+        return this.squaredDistance(buffer, offset, centroid, Double.POSITIVE_INFINITY);
+    }
+
+    /** Returns the squared distance between a query and a centroid, or a
+     * partial sum greater than or equal to the bound if the distance reaches
+     * it.
+     */
+    double squaredDistance(final double[] buffer, final int offset, final int centroid, final double bound) {
+
+        final int centroidOffset = centroid * this.dimensions;
+        double sum = 0;
+
+        for (int l = 0; l < this.dimensions && sum < bound; ++l) {
+            final double difference = buffer[offset + l] - this.centroids[centroidOffset + l];
+            sum += difference * difference;
+        }
+
+        return sum;
+
+    }
+
+    public SearchMetrics getMetrics() {
+        return metrics;
+    }
+
+    public int getDimensions() {
+        return dimensions;
+    }
+
+    public int size() {
+        return size;
+    }
+
+}
@@ -0,0 +1,210 @@
+package br.com.douglas444.mltk.search;
+
+import br.com.douglas444.mltk.datastructure.ClusterSummary;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/** Random-projection locality-sensitive hashing index over the centroids of a
+ * decision model. Each of several tables hashes a vector, centered on the
+ * mean of the centroids, to the signs of its projections on a few random
+ * Gaussian directions, so close vectors tend to share a bucket. A query
+ * computes the exact distance to the centroids found in its bucket of every
+ * table, and optionally in the buckets that differ by one of the bits whose
+ * projections were closest to zero, and falls back to an exhaustive scan if
+ * all of them are empty.
+ *
+ * More tables and probes raise recall, more bits per table make the buckets
+ * smaller and the queries faster; {@link #evaluate} measures the trade-off on
+ * sample queries.
+ */
+public class LSHIndex extends CentroidIndex {
+
+    public static final int MAX_BITS = 30;
+
+    private final int tables;
+    private final int bits;
+    private final int probes;
+    private final double[] mean;
+    private final double[] directions;
+    private final List<Map<Integer, int[]>> buckets;
+
+    /**
+     * @param tables Number of hash tables.
+     * @param bits Bits of each hash, at most {@link #MAX_BITS}.
+     * @param probes Number of neighboring buckets visited per table besides
+     * the bucket of the query, at most bits.
+     */
+    public LSHIndex(final List<? extends ClusterSummary> summaries, final int tables, final int bits,
+                    final int probes, final Random random) {
+
+        super(summaries);
+
+        if (tables < 1 || bits < 1 || bits > MAX_BITS || probes < 0 || probes > bits) {
+            throw new IllegalArgumentException();
+        }
+
+        this.tables = tables;
+        this.bits = bits;
+        this.probes = probes;
+        this.mean = new double[this.dimensions];
+        this.directions = new double[tables * bits * this.dimensions];
+        this.buckets = new ArrayList<>();
+
+        for (int i = 0; i < this.size; ++i) {
+            for (int l = 0; l < this.dimensions; ++l) {
+                this.mean[l] += this.centroids[i * this.dimensions + l] / this.size;
+            }
+        }
+
+        for (int i = 0; i < this.directions.length; ++i) {
+            this.directions[i] = random.nextGaussian();
+        }
+
+        final List<Map<Integer, List<Integer>>> lists = new ArrayList<>();
+        for (int t = 0; t < tables; ++t) {
+            lists.add(new HashMap<>());
+        }
+
+        final double[] projections = new double[tables * bits];
+
+        for (int i = 0; i < this.size; ++i) {
+            this.project(this.centroids, i * this.dimensions, projections);
+            for (int t = 0; t < tables; ++t) {
+                lists.get(t).computeIfAbsent(this.hash(projections, t), key -> new ArrayList<>()).add(i);
+            }
+        }
+
+        for (final Map<Integer, List<Integer>> table : lists) {
+            final Map<Integer, int[]> bucketsOfTable = new HashMap<>();
+            table.forEach((key, members) ->
+                    bucketsOfTable.put(key, members.stream().mapToInt(Integer::intValue).toArray()));
+            this.buckets.add(bucketsOfTable);
+        }
+
+    }
+
+    @Override
+    int searchAt(final double[] buffer, final int offset) {
+
+        final double[] projections = new double[this.tables * this.bits];
+        this.project(buffer, offset, projections);
+
+        final BitSet visited = new BitSet(this.size);
+        final int[] flips = new int[this.probes];
+        int candidates = 0;
+        int closest = -1;
+        double minimum = Double.POSITIVE_INFINITY;
+
+        for (int t = 0; t < this.tables; ++t) {
+
+            final int key = this.hash(projections, t);
+            this.smallestMargins(projections, t, flips);
+
+            for (int probe = -1; probe < this.probes; ++probe) {
+
+                final int[] bucket = this.buckets.get(t).get(probe < 0 ? key : key ^ (1 << flips[probe]));
+
+                if (bucket == null) {
+                    continue;
+                }
+
+                candidates += bucket.length;
+
+                for (final int centroid : bucket) {
+                    if (!visited.get(centroid)) {
+                        visited.set(centroid);
+                        final double distance = this.squaredDistance(buffer, offset, centroid, minimum);
+                        if (distance < minimum) {
+                            minimum = distance;
+                            closest = centroid;
+                        }
+                    }
+                }
+
+            }
+
+        }
+
+        if (closest == -1) {
+            this.metrics.recordFallback();
+            this.metrics.record(candidates, this.size);
+            return this.exactSearch(buffer, offset);
+        }
+
+        this.metrics.record(candidates, visited.cardinality());
+        return closest;
+
+    }
+
+    public int getTables() {
+        return tables;
+    }
+
+    public int getBits() {
+        return bits;
+    }
+
+    public int getProbes() {
+        return probes;
+    }
+
+    private void project(final double[] buffer, final int offset, final double[] projections) {
+
+        for (int p = 0; p < projections.length; ++p) {
+            final int directionOffset = p * this.dimensions;
+            double sum = 0;
+            for (int l = 0; l < this.dimensions; ++l) {
+                sum += (buffer[offset + l] - this.mean[l]) * this.directions[directionOffset + l];
+            }
+            projections[p] = sum;
+        }
+
+    }
+
+    private int hash(final double[] projections, final int table) {
+
+        int key = 0;
+        for (int b = 0; b < this.bits; ++b) {
+            if (projections[table * this.bits + b] > 0) {
+                key |= 1 << b;
+            }
+        }
+        return key;
+
+    }
+
+    /** Fills the array passed as argument with the bits of the table whose
+     * projections are closest to zero, the most likely to differ for a close
+     * centroid, by insertion since there are few of them.
+     */
+    private void smallestMargins(final double[] projections, final int table, final int[] flips) {
+
+        int count = 0;
+
+        for (int b = 0; b < this.bits; ++b) {
+
+            final double margin = Math.abs(projections[table * this.bits + b]);
+
+            if (count < flips.length) {
+                ++count;
+            } else if (count == 0 || margin >= Math.abs(projections[table * this.bits + flips[count - 1]])) {
+                continue;
+            }
+
+            int i = count - 1;
+            while (i > 0 && Math.abs(projections[table * this.bits + flips[i - 1]]) > margin) {
+                flips[i] = flips[i - 1];
+                --i;
+            }
+            flips[i] = b;
+
+        }
+
+    }
+
+}
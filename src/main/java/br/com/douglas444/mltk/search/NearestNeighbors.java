@@ -0,0 +1,92 @@
+package br.com.douglas444.mltk.search;
+
+import br.com.douglas444.mltk.datastructure.Sample;
+import br.com.douglas444.mltk.datastructure.SampleMatrix;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** Exhaustive k-nearest-neighbor search. Each candidate is compared once to
+ * the query and kept in a bounded max-heap of the k closest so far, in
+ * O(n log k) instead of the O(n log n) of sorting the candidates, and the sum
+ * of squared differences of a candidate is abandoned as soon as it exceeds the
+ * farthest neighbor kept. For repeated queries over the same samples see
+ * {@link VPTree}.
+ */
+public final class NearestNeighbors {
+
+    /** Returns the k samples closest to the target, closest first, or every
+     * sample if there are fewer than k.
+     */
+    public static List<Neighbor> search(final Sample target, final List<Sample> samples, final int k) {
+
+        final BoundedHeap heap = new BoundedHeap(k);
+        final double[] x = target.getX();
+        int index = 0;
+
+        for (final Sample sample : samples) {
+            final double distance = squaredDistance(x, sample.getX(), heap.threshold());
+            heap.offer(distance, index++);
+        }
+
+        final double[] distances = new double[heap.size()];
+        final int[] indices = heap.drain(distances);
+        final List<Neighbor> neighbors = new ArrayList<>();
+
+        for (int i = 0; i < indices.length; ++i) {
+            neighbors.add(new Neighbor(samples.get(indices[i]), indices[i], Math.sqrt(distances[i])));
+        }
+
+        return neighbors;
+
+    }
+
+    /** Same as {@link #search(Sample, List, int)} over the rows of a matrix,
+     * only materializing the k neighbors found as samples.
+     */
+    public static List<Neighbor> search(final double[] target, final SampleMatrix samples, final int k) {
+
+        if (target.length != samples.getDimensions()) {
+            throw new IllegalArgumentException();
+        }
+
+        final BoundedHeap heap = new BoundedHeap(k);
+        final double[] x = new double[samples.getDimensions()];
+
+        for (int i = 0; i < samples.size(); ++i) {
+            samples.copyRow(i, x, 0);
+            heap.offer(squaredDistance(target, x, heap.threshold()), i);
+        }
+
+        final double[] distances = new double[heap.size()];
+        final int[] indices = heap.drain(distances);
+        final List<Neighbor> neighbors = new ArrayList<>();
+
+        for (int i = 0; i < indices.length; ++i) {
+            neighbors.add(new Neighbor(samples.getSample(indices[i]), indices[i], Math.sqrt(distances[i])));
+        }
+
+        return neighbors;
+
+    }
+
+    /** Returns the squared distance between the two vectors, or a partial sum
+     * greater than or equal to the bound passed as argument if the distance
+     * reaches it.
+     */
+    static double squaredDistance(final double[] a, final double[] b, final double bound) {
+
+        if (a.length != b.length) {
+            throw new IllegalArgumentException();
+        }
+
+        double sum = 0;
+        for (int i = 0; i < a.length && sum < bound; ++i) {
+            final double difference = a[i] - b[i];
+            sum += difference * difference;
+        }
+        return sum;
+
+    }
+
+}
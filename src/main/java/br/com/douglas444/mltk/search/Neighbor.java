@@ -0,0 +1,32 @@
+package br.com.douglas444.mltk.search;
+
+import br.com.douglas444.mltk.datastructure.Sample;
+
+/** Result of a neighbor search: a sample, its position in the searched list or
+ * matrix, and its distance to the query.
+ */
+public class Neighbor {
+
+    private final Sample sample;
+    private final int index;
+    private final double distance;
+
+    public Neighbor(final Sample sample, final int index, final double distance) {
+        this.sample = sample;
+        this.index = index;
+        this.distance = distance;
+    }
+
+    public Sample getSample() {
+        return sample;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public double getDistance() {
+        return distance;
+    }
+
+}
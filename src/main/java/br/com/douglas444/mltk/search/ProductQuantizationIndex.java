@@ -0,0 +1,236 @@
+package br.com.douglas444.mltk.search;
+
+import br.com.douglas444.mltk.clustering.kmeans.KMeansPlusPlus;
+import br.com.douglas444.mltk.datastructure.ClusterSummary;
+import br.com.douglas444.mltk.datastructure.DecisionModel;
+import br.com.douglas444.mltk.datastructure.Partition;
+import br.com.douglas444.mltk.datastructure.SampleBatch;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/** Product-quantization index over the centroids of a decision model. The
+ * dimensions are split into contiguous subspaces and the centroids are
+ * clustered in each one with {@link KMeansPlusPlus}, on a sample of at most 64
+ * centroids per codeword, so that every centroid is encoded by one byte per
+ * subspace, the closest codeword there. A query
+ * first computes its squared distance to every codeword, then scores each
+ * centroid with one table lookup per subspace, the asymmetric distance,
+ * instead of one operation per dimension; the best scored centroids are
+ * finally re-ranked with their exact distances.
+ *
+ * More subspaces and codewords make the scores closer to the exact
+ * distances, and a longer re-rank list makes it more likely that the exact
+ * closest centroid is among the candidates, both raising recall at the cost
+ * of speed; {@link #evaluate} measures the trade-off on sample queries.
+ */
+public class ProductQuantizationIndex extends CentroidIndex {
+
+    public static final int MAX_CODEWORDS = 256;
+
+    private static final int TRAINING_SAMPLES_PER_CODEWORD = 64;
+
+    private final int subspaces;
+    private final int rerank;
+    private final int[] subspaceStarts;
+    private final int[] tableOffsets;
+    private final double[] codebooks;
+    private final byte[] codes;
+
+    /**
+     * @param subspaces Number of subspaces, at most the number of dimensions.
+     * @param codewords Codewords per subspace, at most {@link #MAX_CODEWORDS}.
+     * @param rerank Number of best scored centroids whose exact distance is
+     * computed, 0 to return the best scored centroid as is.
+     */
+    public ProductQuantizationIndex(final List<? extends ClusterSummary> summaries, final int subspaces,
+                                    final int codewords, final int rerank, final Random random) {
+
+        super(summaries);
+
+        if (subspaces < 1 || subspaces > this.dimensions || codewords < 1 || codewords > MAX_CODEWORDS
+                || rerank < 0) {
+            throw new IllegalArgumentException();
+        }
+
+        this.subspaces = subspaces;
+        this.rerank = rerank;
+        this.subspaceStarts = new int[subspaces + 1];
+        this.tableOffsets = new int[subspaces + 1];
+        this.codes = new byte[this.size * subspaces];
+
+        for (int s = 0; s <= subspaces; ++s) {
+            this.subspaceStarts[s] = s * this.dimensions / subspaces;
+        }
+
+        final int[] training = chooseTrainingSet(this.size, codewords * TRAINING_SAMPLES_PER_CODEWORD, random);
+        final double[][] subspaceCodebooks = new double[subspaces][];
+
+        for (int s = 0; s < subspaces; ++s) {
+
+            final int from = this.subspaceStarts[s];
+            final int width = this.subspaceStarts[s + 1] - from;
+            final SampleBatch batch = new SampleBatch(training.length, width);
+
+            for (final int i : training) {
+                final int row = batch.append(0, DecisionModel.NO_LABEL);
+                System.arraycopy(this.centroids, i * this.dimensions + from, batch.getX(), row * width, width);
+            }
+
+            final Partition partition = KMeansPlusPlus.execute(batch, Math.min(codewords, training.length), random);
+            final int k = partition.getCentroids().size();
+
+            subspaceCodebooks[s] = new double[k * width];
+            for (int c = 0; c < k; ++c) {
+                System.arraycopy(partition.getCentroids().get(c).getX(), 0, subspaceCodebooks[s], c * width, width);
+            }
+
+            for (int i = 0; i < this.size; ++i) {
+                this.codes[i * subspaces + s] = (byte) closestCodeword(this.centroids, i * this.dimensions + from,
+                        subspaceCodebooks[s], k, width);
+            }
+
+            this.tableOffsets[s + 1] = this.tableOffsets[s] + k;
+
+        }
+
+        this.codebooks = new double[totalLength(subspaceCodebooks)];
+        int position = 0;
+        for (final double[] codebook : subspaceCodebooks) {
+            System.arraycopy(codebook, 0, this.codebooks, position, codebook.length);
+            position += codebook.length;
+        }
+
+    }
+
+    @Override
+    int searchAt(final double[] buffer, final int offset) {
+
+        final double[] table = new double[this.tableOffsets[this.subspaces]];
+        int codebookPosition = 0;
+
+        for (int s = 0; s < this.subspaces; ++s) {
+
+            final int from = this.subspaceStarts[s];
+            final int width = this.subspaceStarts[s + 1] - from;
+
+            for (int c = this.tableOffsets[s]; c < this.tableOffsets[s + 1]; ++c) {
+                double sum = 0;
+                for (int l = 0; l < width; ++l) {
+                    final double difference = buffer[offset + from + l] - this.codebooks[codebookPosition++];
+                    sum += difference * difference;
+                }
+                table[c] = sum;
+            }
+
+        }
+
+        final BoundedHeap heap = new BoundedHeap(Math.max(1, this.rerank));
+
+        for (int i = 0; i < this.size; ++i) {
+
+            final int codeOffset = i * this.subspaces;
+            final double bound = heap.threshold();
+            double score = 0;
+
+            for (int s = 0; s < this.subspaces && score < bound; ++s) {
+                score += table[this.tableOffsets[s] + (this.codes[codeOffset + s] & 0xFF)];
+            }
+
+            if (score < bound) {
+                heap.offer(score, i);
+            }
+
+        }
+
+        final int[] candidates = heap.drain(new double[heap.size()]);
+
+        if (this.rerank == 0) {
+            this.metrics.record(this.size, 0);
+            return candidates[0];
+        }
+
+        int closest = candidates[0];
+        double minimum = Double.POSITIVE_INFINITY;
+
+        for (final int candidate : candidates) {
+            final double distance = this.squaredDistance(buffer, offset, candidate, minimum);
+            if (distance < minimum) {
+                minimum = distance;
+                closest = candidate;
+            }
+        }
+
+        this.metrics.record(this.size, candidates.length);
+        return closest;
+
+    }
+
+    public int getSubspaces() {
+        return subspaces;
+    }
+
+    public int getRerank() {
+        return rerank;
+    }
+
+    /** Returns the positions of the centroids the codebooks are trained on,
+     * all of them if there are at most the number passed as argument, a
+     * uniform sample of that many otherwise.
+     */
+    private static int[] chooseTrainingSet(final int size, final int maximum, final Random random) {
+
+        final int[] positions = new int[size];
+        for (int i = 0; i < size; ++i) {
+            positions[i] = i;
+        }
+
+        if (size <= maximum) {
+            return positions;
+        }
+
+        for (int i = 0; i < maximum; ++i) {
+            final int j = i + random.nextInt(size - i);
+            final int position = positions[i];
+            positions[i] = positions[j];
+            positions[j] = position;
+        }
+
+        return Arrays.copyOf(positions, maximum);
+
+    }
+
+    private static int closestCodeword(final double[] vectors, final int offset, final double[] codebook,
+                                       final int k, final int width) {
+
+        int closest = 0;
+        double minimum = Double.POSITIVE_INFINITY;
+
+        for (int c = 0; c < k; ++c) {
+            double sum = 0;
+            for (int l = 0; l < width && sum < minimum; ++l) {
+                final double difference = vectors[offset + l] - codebook[c * width + l];
+                sum += difference * difference;
+            }
+            if (sum < minimum) {
+                minimum = sum;
+                closest = c;
+            }
+        }
+
+        return closest;
+
+    }
+
+    private static int totalLength(final double[][] arrays) {
+
+        int length = 0;
+        for (final double[] array : arrays) {
+            length += array.length;
+        }
+        return length;
+
+    }
+
+}
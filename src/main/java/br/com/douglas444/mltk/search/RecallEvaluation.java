@@ -0,0 +1,49 @@
+package br.com.douglas444.mltk.search;
+
+/** Recall@1 and speedup of a {@link CentroidIndex} measured against an
+ * exhaustive scan over the same queries.
+ */
+public class RecallEvaluation {
+
+    private final int queries;
+    private final int hits;
+    private final long exactNanos;
+    private final long approximateNanos;
+
+    RecallEvaluation(final int queries, final int hits, final long exactNanos, final long approximateNanos) {
+        this.queries = queries;
+        this.hits = hits;
+        this.exactNanos = exactNanos;
+        this.approximateNanos = approximateNanos;
+    }
+
+    /** Returns the fraction of queries for which the index returned a centroid
+     * as close as the exact closest one.
+     */
+    public double getRecall() {
+        return this.queries == 0 ? 1 : (double) this.hits / this.queries;
+    }
+
+    public double getSpeedup() {
+        return (double) this.exactNanos / Math.max(1, this.approximateNanos);
+    }
+
+    public int getQueries() {
+        return queries;
+    }
+
+    public long getExactNanos() {
+        return exactNanos;
+    }
+
+    public long getApproximateNanos() {
+        return approximateNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("recall@1=%.4f speedup=%.2fx queries=%d", this.getRecall(), this.getSpeedup(),
+                this.queries);
+    }
+
+}
@@ -0,0 +1,65 @@
+package br.com.douglas444.mltk.search;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/** Counters of the work done by a {@link CentroidIndex}, safe to update from
+ * concurrent queries. Comparing {@link #getExactDistances()} to queries × size
+ * tells how much of the exhaustive scan was avoided.
+ */
+public class SearchMetrics {
+
+    private final LongAdder queries = new LongAdder();
+    private final LongAdder candidates = new LongAdder();
+    private final LongAdder exactDistances = new LongAdder();
+    private final LongAdder fallbacks = new LongAdder();
+
+    void record(final long candidates, final long exactDistances) {
+        this.queries.increment();
+        this.candidates.add(candidates);
+        this.exactDistances.add(exactDistances);
+    }
+
+    void recordFallback() {
+        this.fallbacks.increment();
+    }
+
+    public void reset() {
+        this.queries.reset();
+        this.candidates.reset();
+        this.exactDistances.reset();
+        this.fallbacks.reset();
+    }
+
+    public long getQueries() {
+        return this.queries.sum();
+    }
+
+    /** Returns the number of centroids considered by the approximate stage,
+     * scored from codes or found in hash buckets, over all queries.
+     */
+    public long getCandidates() {
+        return this.candidates.sum();
+    }
+
+    /** Returns the number of exact distances computed over all queries.
+     */
+    public long getExactDistances() {
+        return this.exactDistances.sum();
+    }
+
+    /** Returns the number of queries that found no candidate and were answered
+     * by an exhaustive scan.
+     */
+    public long getFallbacks() {
+        return this.fallbacks.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "queries=" + this.getQueries()
+                + " candidates=" + this.getCandidates()
+                + " exactDistances=" + this.getExactDistances()
+                + " fallbacks=" + this.getFallbacks();
+    }
+
+}
@@ -0,0 +1,230 @@
+package br.com.douglas444.mltk.search;
+
+import br.com.douglas444.mltk.datastructure.Sample;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+/** Vantage-point tree over a fixed set of samples, for repeated neighbor
+ * queries. Each node is a sample, the vantage point, and splits the samples
+ * under it at the median of their distances to it; a query only descends into
+ * a half when the triangle inequality allows a closer neighbor there, which
+ * on average leaves most of the samples unvisited.
+ *
+ * The tree is implicit: the samples are reordered so that each node sits at
+ * the start of its range, followed by its inner half and then its outer half,
+ * and only the median distance of each node is stored.
+ */
+public class VPTree {
+
+    private final Sample[] samples;
+    private final int[] indices;
+    private final double[] thresholds;
+
+    /**
+     * @param random Source of the vantage points and of the pivots used to
+     * find each median.
+     */
+    public VPTree(final List<Sample> samples, final Random random) {
+
+        final int n = samples.size();
+
+        this.samples = samples.toArray(new Sample[0]);
+        this.indices = new int[n];
+        this.thresholds = new double[n];
+
+        for (int i = 0; i < n; ++i) {
+            this.indices[i] = i;
+        }
+
+        if (n > 0) {
+            final int dimensions = this.samples[0].getX().length;
+            for (final Sample sample : this.samples) {
+                if (sample.getX().length != dimensions) {
+                    throw new IllegalArgumentException();
+                }
+            }
+        }
+
+        this.build(0, n, new double[n], random);
+
+    }
+
+    /** Returns the k samples closest to the target, closest first. The index
+     * of each neighbor is its position in the list the tree was built from.
+     */
+    public List<Neighbor> search(final Sample target, final int k) {
+
+        final BoundedHeap heap = new BoundedHeap(k);
+        this.search(target.getX(), 0, this.samples.length, heap);
+
+        final double[] distances = new double[heap.size()];
+        final int[] positions = heap.drain(distances);
+        final List<Neighbor> neighbors = new ArrayList<>();
+
+        for (int i = 0; i < positions.length; ++i) {
+            neighbors.add(new Neighbor(this.samples[positions[i]], this.indices[positions[i]], distances[i]));
+        }
+
+        return neighbors;
+
+    }
+
+    /** Returns every sample within the radius passed as argument of the
+     * target, closest first.
+     */
+    public List<Neighbor> searchRadius(final Sample target, final double radius) {
+
+        final List<Neighbor> neighbors = new ArrayList<>();
+        this.searchRadius(target.getX(), radius, 0, this.samples.length, neighbors);
+        neighbors.sort(Comparator.comparingDouble(Neighbor::getDistance));
+        return neighbors;
+
+    }
+
+    public int size() {
+        return this.samples.length;
+    }
+
+    private void search(final double[] x, final int from, final int to, final BoundedHeap heap) {
+
+        if (from >= to) {
+            return;
+        }
+
+        final double distance = this.distance(x, from);
+        heap.offer(distance, from);
+
+        final int middle = middle(from, to);
+        final double threshold = this.thresholds[from];
+
+        if (distance < threshold) {
+            this.search(x, from + 1, middle, heap);
+            if (distance + heap.threshold() >= threshold) {
+                this.search(x, middle, to, heap);
+            }
+        } else {
+            this.search(x, middle, to, heap);
+            if (distance - heap.threshold() <= threshold) {
+                this.search(x, from + 1, middle, heap);
+            }
+        }
+
+    }
+
+    private void searchRadius(final double[] x, final double radius, final int from, final int to,
+                              final List<Neighbor> neighbors) {
+
+        if (from >= to) {
+            return;
+        }
+
+        final double distance = this.distance(x, from);
+        if (distance <= radius) {
+            neighbors.add(new Neighbor(this.samples[from], this.indices[from], distance));
+        }
+
+        final int middle = middle(from, to);
+        final double threshold = this.thresholds[from];
+
+        if (distance - radius <= threshold) {
+            this.searchRadius(x, radius, from + 1, middle, neighbors);
+        }
+
+        if (distance + radius >= threshold) {
+            this.searchRadius(x, radius, middle, to, neighbors);
+        }
+
+    }
+
+    /** Builds the subtree of the range passed as argument: picks a vantage
+     * point, moves it to the start of the range, and partitions the rest
+     * around the median of their distances to it, which becomes the
+     * threshold of the node.
+     */
+    private void build(final int from, final int to, final double[] distances, final Random random) {
+
+        if (to - from <= 1) {
+            return;
+        }
+
+        this.swap(from, from + random.nextInt(to - from), distances);
+
+        final double[] vantage = this.samples[from].getX();
+        for (int i = from + 1; i < to; ++i) {
+            distances[i] = this.distance(vantage, i);
+        }
+
+        final int middle = middle(from, to);
+        this.select(from + 1, to, middle, distances, random);
+        this.thresholds[from] = distances[middle];
+
+        this.build(from + 1, middle, distances, random);
+        this.build(middle, to, distances, random);
+
+    }
+
+    /** Reorders the range so that the position passed as argument holds the
+     * distance it would hold if the range were sorted, with no greater
+     * distance before it and no smaller one after it.
+     */
+    private void select(int from, int to, final int position, final double[] distances, final Random random) {
+
+        while (to - from > 1) {
+
+            final double pivot = distances[from + random.nextInt(to - from)];
+            int i = from;
+            int j = to - 1;
+
+            while (i <= j) {
+                while (distances[i] < pivot) {
+                    ++i;
+                }
+                while (distances[j] > pivot) {
+                    --j;
+                }
+                if (i <= j) {
+                    this.swap(i++, j--, distances);
+                }
+            }
+
+            if (position <= j) {
+                to = j + 1;
+            } else if (position >= i) {
+                from = i;
+            } else {
+                return;
+            }
+
+        }
+
+    }
+
+    private static int middle(final int from, final int to) {
+        return from + 1 + (to - from - 1) / 2;
+    }
+
+    private double distance(final double[] x, final int position) {
+        return Math.sqrt(NearestNeighbors.squaredDistance(x, this.samples[position].getX(),
+                Double.POSITIVE_INFINITY));
+    }
+
+    private void swap(final int i, final int j, final double[] distances) {
+
+        final Sample sample = this.samples[i];
+        this.samples[i] = this.samples[j];
+        this.samples[j] = sample;
+
+        final int index = this.indices[i];
+        this.indices[i] = this.indices[j];
+        this.indices[j] = index;
+
+        final double distance = distances[i];
+        distances[i] = distances[j];
+        distances[j] = distance;
+
+    }
+
+}
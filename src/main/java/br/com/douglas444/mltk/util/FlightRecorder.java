@@ -0,0 +1,57 @@
+package br.com.douglas444.mltk.util;
+
+/** Marks clustering and classification work with JDK Flight Recorder events,
+ * so recordings show which k-means run, seeding, ICM pass, model rebuild or
+ * evaluation was in progress during a latency spike.
+ *
+ * Every begin method returns an opaque token to be passed to the matching
+ * commit method once the work is done. This is the Java 8 version, where the
+ * tokens are null and every method is empty, so it is inlined away. The jar
+ * is multi-release: on Java 11 or later the class is replaced by the one in
+ * META-INF/versions/11, which returns an event only when its type is enabled
+ * in the running recording and commits it with the values passed as argument.
+ */
+public final class FlightRecorder {
+
+    public static Object beginKMeans() {
+        return null;
+    }
+
+    /**
+     * @param iterations Number of assignment and update steps, the last one
+     * included.
+     */
+    public static void commitKMeans(final Object event, final int n, final int dimensions, final int k,
+                                    final int iterations) {
+    }
+
+    public static Object beginSeeding() {
+        return null;
+    }
+
+    public static void commitSeeding(final Object event, final String algorithm, final int n, final int k) {
+    }
+
+    public static Object beginIcmPass() {
+        return null;
+    }
+
+    public static void commitIcmPass(final Object event, final int pass, final int n, final int reassigned) {
+    }
+
+    public static Object beginModelRebuild() {
+        return null;
+    }
+
+    public static void commitModelRebuild(final Object event, final long version, final int clusterFeatures) {
+    }
+
+    public static Object beginEvaluation() {
+        return null;
+    }
+
+    public static void commitEvaluation(final Object event, final String measure, final double value,
+                                        final int explainedSamples) {
+    }
+
+}
@@ -0,0 +1,199 @@
+package br.com.douglas444.mltk.util;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** Java 11 version of the class, packaged in META-INF/versions/11. Each begin
+ * method allocates an event only if its type is enabled in a running
+ * recording; otherwise it returns null and the commit method does nothing.
+ */
+public final class FlightRecorder {
+
+    @Name("br.com.douglas444.mltk.KMeans")
+    @Label("K-Means")
+    @Description("Assignment and update steps of a k-means run, until convergence")
+    @Category({"MLTK", "Clustering"})
+    static final class KMeansEvent extends Event {
+
+        @Label("Samples")
+        int n;
+
+        @Label("Dimensions")
+        int dimensions;
+
+        @Label("Clusters")
+        int k;
+
+        @Label("Iterations")
+        int iterations;
+
+    }
+
+    @Name("br.com.douglas444.mltk.Seeding")
+    @Label("Seeding")
+    @Description("Choice of the initial centroids of a clustering run")
+    @Category({"MLTK", "Clustering"})
+    static final class SeedingEvent extends Event {
+
+        @Label("Algorithm")
+        String algorithm;
+
+        @Label("Samples")
+        int n;
+
+        @Label("Clusters")
+        int k;
+
+    }
+
+    @Name("br.com.douglas444.mltk.IcmPass")
+    @Label("ICM Pass")
+    @Description("Pass of the iterative conditional mode loop of MCIKMeans over every sample")
+    @Category({"MLTK", "Clustering"})
+    @StackTrace(false)
+    static final class IcmPassEvent extends Event {
+
+        @Label("Pass")
+        int pass;
+
+        @Label("Samples")
+        int n;
+
+        @Label("Reassigned")
+        int reassigned;
+
+    }
+
+    @Name("br.com.douglas444.mltk.ModelRebuild")
+    @Label("Model Rebuild")
+    @Description("Copy of the cluster features and construction of the decision model of a snapshot")
+    @Category({"MLTK", "Classification"})
+    static final class ModelRebuildEvent extends Event {
+
+        @Label("Version")
+        long version;
+
+        @Label("Cluster Features")
+        int clusterFeatures;
+
+    }
+
+    @Name("br.com.douglas444.mltk.Evaluation")
+    @Label("Evaluation")
+    @Description("Measure computed from a dynamic confusion matrix")
+    @Category({"MLTK", "Evaluation"})
+    static final class EvaluationEvent extends Event {
+
+        @Label("Measure")
+        String measure;
+
+        @Label("Value")
+        double value;
+
+        @Label("Explained Samples")
+        int explainedSamples;
+
+    }
+
+    public static Object beginKMeans() {
+        return begin(new KMeansEvent());
+    }
+
+    public static void commitKMeans(final Object event, final int n, final int dimensions, final int k,
+                                    final int iterations) {
+
+        if (event != null) {
+            final KMeansEvent kMeansEvent = (KMeansEvent) event;
+            kMeansEvent.n = n;
+            kMeansEvent.dimensions = dimensions;
+            kMeansEvent.k = k;
+            kMeansEvent.iterations = iterations;
+            kMeansEvent.commit();
+        }
+
+    }
+
+    public static Object beginSeeding() {
+        return begin(new SeedingEvent());
+    }
+
+    public static void commitSeeding(final Object event, final String algorithm, final int n, final int k) {
+
+        if (event != null) {
+            final SeedingEvent seedingEvent = (SeedingEvent) event;
+            seedingEvent.algorithm = algorithm;
+            seedingEvent.n = n;
+            seedingEvent.k = k;
+            seedingEvent.commit();
+        }
+
+    }
+
+    public static Object beginIcmPass() {
+        return begin(new IcmPassEvent());
+    }
+
+    public static void commitIcmPass(final Object event, final int pass, final int n, final int reassigned) {
+
+        if (event != null) {
+            final IcmPassEvent icmPassEvent = (IcmPassEvent) event;
+            icmPassEvent.pass = pass;
+            icmPassEvent.n = n;
+            icmPassEvent.reassigned = reassigned;
+            icmPassEvent.commit();
+        }
+
+    }
+
+    public static Object beginModelRebuild() {
+        return begin(new ModelRebuildEvent());
+    }
+
+    public static void commitModelRebuild(final Object event, final long version, final int clusterFeatures) {
+
+        if (event != null) {
+            final ModelRebuildEvent modelRebuildEvent = (ModelRebuildEvent) event;
+            modelRebuildEvent.version = version;
+            modelRebuildEvent.clusterFeatures = clusterFeatures;
+            modelRebuildEvent.commit();
+        }
+
+    }
+
+    public static Object beginEvaluation() {
+        return begin(new EvaluationEvent());
+    }
+
+    public static void commitEvaluation(final Object event, final String measure, final double value,
+                                        final int explainedSamples) {
+
+        if (event != null) {
+            final EvaluationEvent evaluationEvent = (EvaluationEvent) event;
+            evaluationEvent.measure = measure;
+            evaluationEvent.value = value;
+            evaluationEvent.explainedSamples = explainedSamples;
+            evaluationEvent.commit();
+        }
+
+    }
+
+    /** Starts the timing of the event passed as argument if its type is
+     * enabled. A disabled event does not escape, so its allocation is
+     * usually removed by the JIT compiler.
+     */
+    private static Event begin(final Event event) {
+
+        if (!event.isEnabled()) {
+            return null;
+        }
+
+        event.begin();
+        return event;
+
+    }
+
+}